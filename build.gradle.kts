@@ -10,6 +10,7 @@ import org.zaproxy.gradle.addon.misc.ConvertMarkdownToHtml
 plugins {
     id("com.diffplug.spotless") version "6.14.1"
     id("com.github.ben-manes.versions") version "0.45.0"
+    id("me.champeau.jmh") version "0.7.0"
     id("net.ltgt.errorprone") version "3.0.1"
     `java-library`
     id("org.zaproxy.add-on") version "0.8.0"
@@ -28,6 +29,23 @@ java {
 
 dependencies {
     "errorprone"("com.google.errorprone:error_prone_core:2.18.0")
+
+    testImplementation("org.zaproxy:zap:2.12.0")
+    testImplementation("org.junit.jupiter:junit-jupiter:5.9.2")
+    testImplementation("org.hsqldb:hsqldb:2.7.1")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.9.2")
+
+    jmhImplementation("org.zaproxy:zap:2.12.0")
+    jmhImplementation("org.hsqldb:hsqldb:2.7.1")
+}
+
+jmh {
+    jmhVersion.set("1.36")
+    profilers.add("gc")
+}
+
+tasks.withType<Test>().configureEach {
+    useJUnitPlatform()
 }
 
 spotless {
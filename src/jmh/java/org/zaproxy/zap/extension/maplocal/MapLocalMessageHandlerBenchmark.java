@@ -0,0 +1,135 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parosproxy.paros.network.HttpMalformedHeaderException;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * Benchmark of {@link MapLocalMessageHandler} mapping messages to 64 small files, with 1, 4, and
+ * 16 proxy threads at once, the throughput should increase with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MapLocalMessageHandlerBenchmark {
+
+    private static final int FILES = 64;
+
+    private Path dir;
+    private MapLocalMessageHandler handler;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("maplocal-benchmark");
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>(FILES);
+        for (int i = 0; i < FILES; i++) {
+            Path file = dir.resolve("file" + i + ".txt");
+            Files.write(file, ("Content of file " + i).getBytes(StandardCharsets.UTF_8));
+            mapLocals.add(
+                    new MapLocalTableEntry(
+                            url(i), MapLocalTableEntry.Match.contains, false, file));
+        }
+        handler = new MapLocalMessageHandler(new MapLocalContentCache(16));
+        handler.setEnabledMapLocals(mapLocals);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        handler.shutdown();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /** The file of the next message, by thread. */
+    @State(Scope.Thread)
+    public static class Counter {
+
+        private int next;
+
+        int nextFile() {
+            next = (next + 1) % FILES;
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public HttpMessage threads1(Counter counter) throws HttpMalformedHeaderException {
+        return map(counter.nextFile());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public HttpMessage threads4(Counter counter) throws HttpMalformedHeaderException {
+        return map(counter.nextFile());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public HttpMessage threads16(Counter counter) throws HttpMalformedHeaderException {
+        return map(counter.nextFile());
+    }
+
+    private HttpMessage map(int file) throws HttpMalformedHeaderException {
+        HttpMessage msg =
+                new HttpMessage(
+                        new HttpRequestHeader(
+                                "GET " + url(file) + " HTTP/1.1\r\nHost: example.com\r\n\r\n"));
+        msg.setResponseHeader("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n");
+        msg.setResponseBody("server");
+        handler.handleMessageReceivedFromServer(msg, false);
+        return msg;
+    }
+
+    private static String url(int file) {
+        return "http://example.com/file" + file + ".txt";
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parosproxy.paros.network.HttpMalformedHeaderException;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalScopeCache;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * Benchmark of finding the map local of a message, with the filter of the rule set and the scope
+ * and resolution caches, for a URI that matches a map local and for one rejected by the filter.
+ *
+ * <p>The allocations per lookup are reported by the GC profiler ({@code -prof gc}), the lookups
+ * with the caches warm should allocate only the context of the message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MapLocalMessageHandlerFindBenchmark {
+
+    @Param({"100", "10000"})
+    private int rules;
+
+    @Param({"match", "reject"})
+    private String uri;
+
+    private MapLocalMessageHandler handler;
+    private HttpMessage msg;
+
+    @Setup
+    public void setUp() throws HttpMalformedHeaderException, InterruptedException {
+        handler =
+                new MapLocalMessageHandler(
+                        new MapLocalContentCache(16), new MapLocalScopeCache(10_000, u -> true));
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            mapLocals.add(
+                    new MapLocalTableEntry(
+                            "https://host" + i + ".example.com/static/",
+                            MapLocalTableEntry.Match.contains,
+                            false,
+                            Paths.get("static")));
+        }
+        handler.setEnabledMapLocals(mapLocals);
+        while (!handler.getRuleSet().isIndexed()) {
+            Thread.sleep(10);
+        }
+
+        String host = "match".equals(uri) ? "host" + (rules - 1) : "other";
+        msg =
+                new HttpMessage(
+                        new HttpRequestHeader(
+                                "GET https://"
+                                        + host
+                                        + ".example.com/static/app.js HTTP/1.1\r\n"
+                                        + "Host: "
+                                        + host
+                                        + ".example.com\r\n\r\n"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    @Benchmark
+    public MapLocalTableEntry find() {
+        return handler.findEnabledMapLocal(msg, false, true);
+    }
+}
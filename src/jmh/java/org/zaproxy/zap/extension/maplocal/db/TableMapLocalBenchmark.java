@@ -0,0 +1,114 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parosproxy.paros.db.DatabaseException;
+
+/**
+ * Benchmark of loading the map locals of a session, with {@link TableMapLocal#readAll} against
+ * reading each id, with 1000 to 20,000 map locals in an in-memory database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TableMapLocalBenchmark {
+
+    @Param({"1000", "10000", "20000"})
+    private int rules;
+
+    private Connection conn;
+    private TableMapLocal table;
+
+    @Setup
+    public void setUp() throws SQLException, DatabaseException {
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:" + UUID.randomUUID(), "SA", "");
+        table =
+                new TableMapLocal() {
+                    @Override
+                    protected Connection getConnection() {
+                        return conn;
+                    }
+                };
+        table.reconnect(conn);
+
+        List<RecordMapLocal> records = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            records.add(
+                    new RecordMapLocal(
+                            0,
+                            "https://host" + i + ".example.com/app.js",
+                            "contains",
+                            false,
+                            "/tmp/app" + i + ".js",
+                            false,
+                            i % 2 == 0 ? null : "text/javascript"));
+        }
+        table.writeAll(records);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        conn.close();
+    }
+
+    @Benchmark
+    public int readAll() throws DatabaseException {
+        int[] count = {0};
+        table.readAll(record -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public int readEachId() throws DatabaseException {
+        int count = 0;
+        for (int id : table.getMapLocalList()) {
+            if (table.read(id) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * Benchmark of reading a file with 100,000 map locals, in batches of 1000 as done when importing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MapLocalRuleFileBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"100000"})
+    private int rules;
+
+    private Path dir;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("maplocal-benchmark");
+        Files.createFile(dir.resolve("app.js"));
+        file = dir.resolve("maplocals.jsonl");
+        List<String> lines = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            lines.add(
+                    "{\"url\":\"https://host"
+                            + i
+                            + ".example.com/app.js\",\"match\":\"contains\","
+                            + "\"localPath\":\"app.js\"}");
+        }
+        Files.write(file, lines);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int importInBatches() throws IOException {
+        List<MapLocalTableEntry> batch = new ArrayList<>(BATCH_SIZE);
+        int[] batches = {0};
+        MapLocalRuleFile.read(
+                file,
+                mapLocal -> {
+                    batch.add(mapLocal);
+                    if (batch.size() == BATCH_SIZE) {
+                        batches[0]++;
+                        batch.clear();
+                    }
+                });
+        return batches[0];
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link RegexRuleSet} against running the regular expressions one by one, with 10
+ * to 10,000 rules, for a URI that matches the last rule and for one that matches none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RegexRuleSetBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int rules;
+
+    @Param({"last", "none"})
+    private String uri;
+
+    private Pattern[] patterns;
+    private RegexRuleSet ruleSet;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        patterns = new Pattern[rules];
+        List<Pattern> list = new ArrayList<>(rules);
+        int[] positions = new int[rules];
+        for (int i = 0; i < rules; i++) {
+            patterns[i] =
+                    Pattern.compile(
+                            "https?://host" + i + "\\.example\\.com/api/v[0-9]+/item" + i + "/.*",
+                            Pattern.CASE_INSENSITIVE);
+            list.add(patterns[i]);
+            positions[i] = i;
+        }
+        ruleSet = new RegexRuleSet(positions, list);
+
+        int host = "last".equals(uri) ? rules - 1 : rules;
+        text = "https://host" + host + ".example.com/api/v2/item" + host + "/details?id=42";
+    }
+
+    @Benchmark
+    public int prefiltered() {
+        return ruleSet.find(text, rules, i -> patterns[i].matcher(text).find());
+    }
+
+    @Benchmark
+    public int linear() {
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].matcher(text).find()) {
+                return i;
+            }
+        }
+        return rules;
+    }
+}
@@ -20,9 +20,12 @@
 package org.zaproxy.zap.extension.maplocal;
 
 import java.awt.CardLayout;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.swing.ImageIcon;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,12 +36,18 @@ import org.parosproxy.paros.db.DatabaseException;
 import org.parosproxy.paros.db.DatabaseUnsupportedException;
 import org.parosproxy.paros.extension.ExtensionAdaptor;
 import org.parosproxy.paros.extension.ExtensionHook;
+import org.parosproxy.paros.extension.OptionsChangedListener;
 import org.parosproxy.paros.extension.SessionChangedListener;
+import org.parosproxy.paros.model.OptionsParam;
 import org.parosproxy.paros.model.Session;
 import org.parosproxy.paros.network.HttpMessage;
 import org.zaproxy.zap.extension.httppanel.Message;
-import org.zaproxy.zap.extension.maplocal.db.RecordMapLocal;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalFileWatcher;
+import org.zaproxy.zap.extension.maplocal.db.MapLocalWriteBehindQueue;
 import org.zaproxy.zap.extension.maplocal.db.TableMapLocal;
+import org.zaproxy.zap.extension.maplocal.io.MapLocalRuleFile;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalOptionsPanel;
 import org.zaproxy.zap.extension.maplocal.view.MapLocalStatusPanel;
 import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
 import org.zaproxy.zap.extension.maplocal.view.MapLocalTableModel;
@@ -51,7 +60,8 @@ import org.zaproxy.zap.extension.maplocal.view.popup.PopupMenuRemoveMapLocal;
  * An extension that adds Map Local feature. It allows user to map response bodies for chosen URLs
  * to local files.
  */
-public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChangedListener {
+public class ExtensionMapLocal extends ExtensionAdaptor
+        implements SessionChangedListener, OptionsChangedListener {
 
     // The name is public so that other extensions can access it
     public static final String NAME = "ExtensionMapLocal";
@@ -67,7 +77,10 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
      */
     private static final String RESOURCES = "resources";
 
+    private static final int IMPORT_BATCH_SIZE = 1000;
+
     private MapLocalStatusPanel mapLocalPanel;
+    private MapLocalOptionsPanel mapLocalOptionsPanel;
 
     private static final Logger LOGGER = LogManager.getLogger(ExtensionMapLocal.class);
 
@@ -79,8 +92,16 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
     private Control.Mode mode = Control.getSingleton().getMode();
     private MapLocalMessageHandler mapLocalMessageHandler;
     private ProxyListenerMapLocal proxyListenerMapLocal;
+    private OverrideMessageProxyListenerMapLocal overrideMessageProxyListenerMapLocal;
 
     private final TableMapLocal dbTableMapLocal = new TableMapLocal();
+    private MapLocalWriteBehindQueue writeBehindQueue;
+    /** The map locals without a view, {@code null} otherwise. */
+    private MapLocalRuleStore ruleStore;
+
+    private MapLocalParam param;
+    private MapLocalContentCache contentCache;
+    private MapLocalFileWatcher fileWatcher;
 
     public ExtensionMapLocal() {
         super(NAME);
@@ -91,12 +112,19 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
     public void hook(ExtensionHook extensionHook) {
         super.hook(extensionHook);
 
-        mapLocalMessageHandler = new MapLocalMessageHandler();
+        extensionHook.addOptionsParamSet(getParam());
+        extensionHook.addOptionsChangedListener(this);
+
+        mapLocalMessageHandler = new MapLocalMessageHandler(getContentCache());
+
+        extensionHook.addProxyListener(getProxyListenerMapLocal());
+        extensionHook.addOverrideMessageProxyListener(getOverrideMessageProxyListenerMapLocal());
+        extensionHook.addSessionListener(this);
+        extensionHook.addApiImplementor(new MapLocalAPI(this));
 
         // As long as we're not running as a daemon
         if (hasView()) {
-            extensionHook.addProxyListener(getProxyListenerMapLocal());
-            extensionHook.addSessionListener(this);
+            extensionHook.getHookView().addOptionPanel(getMapLocalOptionsPanel());
 
             extensionHook.getHookMenu().addPopupMenuItem(getPopupMenuEditMapLocal());
             extensionHook.getHookMenu().addPopupMenuItem(getPopupMenuDeleteMapLocal());
@@ -105,17 +133,96 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
             mapLocalUiManager = new MapLocalUiManagerImpl(extensionHook.getHookMenu(), this);
             setMapLocalUiManager(mapLocalUiManager);
 
-            mapLocalMessageHandler.setEnabledMapLocals(
-                    getMapLocalTableModel().getMapLocalsEnabledList());
+            getMapLocalTableModel().setEnabledMapLocalsListener(this::enabledMapLocalsChanged);
         } else {
-            mapLocalMessageHandler.setEnabledMapLocals(new ArrayList<>());
+            ruleStore = new MapLocalRuleStore(this::enabledMapLocalsChanged);
         }
     }
 
+    private void enabledMapLocalsChanged(List<MapLocalTableEntry> enabledMapLocals) {
+        mapLocalMessageHandler.setEnabledMapLocals(enabledMapLocals);
+        updateWatchedFiles();
+    }
+
+    private void updateWatchedFiles() {
+        if (!getParam().isWatchFiles()) {
+            return;
+        }
+        getFileWatcher()
+                .setWatchedFiles(
+                        mapLocalMessageHandler.getRuleSet().getMapLocals().stream()
+                                .map(MapLocalTableEntry::getLocalPath)
+                                .collect(Collectors.toList()));
+    }
+
     private MapLocalTableModel getMapLocalTableModel() {
         return (MapLocalTableModel) this.getMapLocalStatusPanel().getMapLocals().getModel();
     }
 
+    /**
+     * Gets the queue that persists the changes to the map locals.
+     *
+     * @return the queue, never {@code null}.
+     */
+    public MapLocalWriteBehindQueue getWriteBehindQueue() {
+        if (writeBehindQueue == null) {
+            writeBehindQueue = new MapLocalWriteBehindQueue(dbTableMapLocal);
+        }
+        return writeBehindQueue;
+    }
+
+    public MapLocalParam getParam() {
+        if (param == null) {
+            param = new MapLocalParam();
+        }
+        return param;
+    }
+
+    public MapLocalContentCache getContentCache() {
+        if (contentCache == null) {
+            contentCache = new MapLocalContentCache(MapLocalParam.DEFAULT_CACHE_MAX_SIZE);
+        }
+        return contentCache;
+    }
+
+    private MapLocalFileWatcher getFileWatcher() {
+        if (fileWatcher == null) {
+            fileWatcher = new MapLocalFileWatcher(getContentCache());
+            getContentCache().setWatched(fileWatcher::isWatched);
+        }
+        return fileWatcher;
+    }
+
+    private MapLocalOptionsPanel getMapLocalOptionsPanel() {
+        if (mapLocalOptionsPanel == null) {
+            mapLocalOptionsPanel = new MapLocalOptionsPanel(getContentCache());
+        }
+        return mapLocalOptionsPanel;
+    }
+
+    @Override
+    public void optionsLoaded() {
+        applyOptions();
+    }
+
+    @Override
+    public void optionsChanged(OptionsParam optionsParam) {
+        applyOptions();
+    }
+
+    private void applyOptions() {
+        getContentCache().setMaxSize(getParam().getCacheMaxSize());
+        if (mapLocalMessageHandler != null) {
+            mapLocalMessageHandler.setLargeFileThreshold(getParam().getLargeFileThreshold());
+            mapLocalMessageHandler.setIndexFile(getParam().getIndexFile());
+        }
+        if (getParam().isWatchFiles()) {
+            updateWatchedFiles();
+        } else if (fileWatcher != null) {
+            fileWatcher.stop();
+        }
+    }
+
     @Override
     public boolean canUnload() {
         return true;
@@ -124,6 +231,15 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
     @Override
     public void unload() {
         super.unload();
+
+        if (mapLocalMessageHandler != null) {
+            mapLocalMessageHandler.shutdown();
+        }
+        if (fileWatcher != null) {
+            fileWatcher.stop();
+        }
+        getContentCache().clear();
+        getWriteBehindQueue().shutdown();
     }
 
     private MapLocalStatusPanel getMapLocalStatusPanel() {
@@ -175,80 +291,163 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
     }
 
     public void addMapLocal(MapLocalTableEntry mapLocal) {
-        this.getMapLocalStatusPanel().addMapLocal(mapLocal);
-        // Switch to the panel for some visual feedback
-        this.getMapLocalStatusPanel().setTabFocus();
-        writeMapLocalToDB(mapLocal);
+        if (ruleStore != null) {
+            ruleStore.addMapLocal(mapLocal);
+        } else {
+            this.getMapLocalStatusPanel().addMapLocal(mapLocal);
+            // Switch to the panel for some visual feedback
+            this.getMapLocalStatusPanel().setTabFocus();
+        }
+        getWriteBehindQueue().add(mapLocal);
     }
 
-    private void writeMapLocalToDB(MapLocalTableEntry mapLocal) {
-        RecordMapLocal recordMapLocal = null;
-        try {
-            recordMapLocal =
-                    dbTableMapLocal.write(
-                            mapLocal.getString(),
-                            mapLocal.getMatch().toString(),
-                            mapLocal.isIgnoreCase(),
-                            mapLocal.getLocalPath().toString());
-
-            int mapLocId = recordMapLocal.getMapLocalId();
-            mapLocal.setMapLocalId(mapLocId);
-        } catch (DatabaseException e) {
-            LOGGER.warn(e.getMessage(), e);
+    /**
+     * Adds the given map locals, written to the session in one batch. The table and the enabled
+     * map locals are updated once.
+     *
+     * @param mapLocals the map locals to add.
+     */
+    public void addMapLocals(Collection<MapLocalTableEntry> mapLocals) {
+        List<MapLocalTableEntry> newMapLocals = new ArrayList<>(mapLocals);
+        if (newMapLocals.isEmpty()) {
+            return;
         }
+        addMapLocalsToModel(newMapLocals);
+        getWriteBehindQueue().addAll(newMapLocals);
     }
 
     public void editMapLocal(MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
-        this.getMapLocalStatusPanel().editMapLocal(oldMapLocal, newMapLocal);
+        if (ruleStore != null) {
+            ruleStore.editMapLocal(oldMapLocal, newMapLocal);
+        } else {
+            this.getMapLocalStatusPanel().editMapLocal(oldMapLocal, newMapLocal);
+        }
 
-        updateMapLocalInDB(oldMapLocal, newMapLocal);
+        getWriteBehindQueue().update(oldMapLocal, newMapLocal);
     }
 
-    private void updateMapLocalInDB(
-            MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
-        try {
-            dbTableMapLocal.update(
-                    oldMapLocal.getMapLocalId(),
-                    newMapLocal.getString(),
-                    newMapLocal.getMatch().toString(),
-                    newMapLocal.isIgnoreCase(),
-                    newMapLocal.getLocalPath().toString());
-
-            newMapLocal.setMapLocalId(oldMapLocal.getMapLocalId());
-        } catch (DatabaseException e) {
-            LOGGER.warn(e.getMessage(), e);
+    public void removeMapLocal(MapLocalTableEntry mapLocal) {
+        if (ruleStore != null) {
+            ruleStore.removeMapLocal(mapLocal);
+        } else {
+            this.getMapLocalStatusPanel().removeMapLocal(mapLocal);
         }
+
+        getWriteBehindQueue().remove(mapLocal);
     }
 
-    public void removeMapLocal(MapLocalTableEntry mapLocal) {
-        this.getMapLocalStatusPanel().removeMapLocal(mapLocal);
+    /**
+     * Imports the map locals of the given file, added in batches of {@value #IMPORT_BATCH_SIZE} as
+     * they are read.
+     *
+     * @param file the file with the map locals, one JSON object per line.
+     * @return the number of map locals imported.
+     * @throws IOException if an error occurred while reading the file, the map locals of the
+     *     batches already added are kept.
+     * @see MapLocalRuleFile
+     */
+    public int importMapLocals(Path file) throws IOException {
+        List<MapLocalTableEntry> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        int count =
+                MapLocalRuleFile.read(
+                        file,
+                        mapLocal -> {
+                            batch.add(mapLocal);
+                            if (batch.size() == IMPORT_BATCH_SIZE) {
+                                addMapLocals(batch);
+                                batch.clear();
+                            }
+                        });
+        addMapLocals(batch);
+        return count;
+    }
 
-        deleteMapLocalInDB(mapLocal);
+    /**
+     * Exports all the map locals to the given file.
+     *
+     * @param file the file to write, one JSON object per line.
+     * @throws IOException if an error occurred while writing the file.
+     * @see MapLocalRuleFile
+     */
+    public void exportMapLocals(Path file) throws IOException {
+        MapLocalRuleFile.write(file, getMapLocals());
     }
 
-    private void deleteMapLocalInDB(MapLocalTableEntry mapLocal) {
-        try {
-            dbTableMapLocal.deleteMapLocal(mapLocal.getMapLocalId());
-        } catch (DatabaseException e) {
-            LOGGER.warn(e.getMessage(), e);
+    /**
+     * Removes the given map locals, the enabled map locals are updated once.
+     *
+     * @param mapLocals the map locals to remove.
+     */
+    public void removeMapLocals(Collection<MapLocalTableEntry> mapLocals) {
+        List<MapLocalTableEntry> oldMapLocals = new ArrayList<>(mapLocals);
+        if (ruleStore != null) {
+            ruleStore.removeMapLocals(oldMapLocals);
+        } else {
+            this.getMapLocalStatusPanel().removeMapLocals(oldMapLocals);
+        }
+
+        for (MapLocalTableEntry mapLocal : oldMapLocals) {
+            getWriteBehindQueue().remove(mapLocal);
+        }
+    }
+
+    /**
+     * Enables or disables the given map locals, the enabled map locals are updated once.
+     *
+     * @param mapLocals the map locals to change.
+     * @param enabled {@code true} to enable, {@code false} to disable.
+     */
+    public void setMapLocalsEnabled(Collection<MapLocalTableEntry> mapLocals, boolean enabled) {
+        List<MapLocalTableEntry> changedMapLocals = new ArrayList<>(mapLocals);
+        if (ruleStore != null) {
+            ruleStore.setEnabled(changedMapLocals, enabled);
+        } else {
+            this.getMapLocalStatusPanel().setMapLocalsEnabled(changedMapLocals, enabled);
         }
     }
 
+    /**
+     * Gets all the map locals, enabled or not.
+     *
+     * @return a new list with the map locals, in order of evaluation.
+     */
+    public List<MapLocalTableEntry> getMapLocals() {
+        if (ruleStore != null) {
+            return ruleStore.getMapLocals();
+        }
+        return getMapLocalStatusPanel().getMapLocalsList();
+    }
+
+    /**
+     * Gets the handler of the messages, with the rule set in use.
+     *
+     * @return the handler, {@code null} if not yet hooked.
+     */
+    public MapLocalMessageHandler getMessageHandler() {
+        return mapLocalMessageHandler;
+    }
+
     @Override
-    public void sessionAboutToChange(final Session session) {}
+    public void sessionAboutToChange(final Session session) {
+        // Write the pending changes to the session being closed
+        getWriteBehindQueue().flush();
+    }
 
     @Override
     public void sessionChanged(Session session) {
-        if (getView() == null) {
-            return;
+        if (ruleStore != null) {
+            ruleStore.clear();
+        } else {
+            getMapLocalStatusPanel().clearTableModel();
         }
-
-        getMapLocalStatusPanel().clearTableModel();
+        mapLocalMessageHandler.scopeChanged();
         readAllMapLocalsFromDB();
     }
 
     @Override
-    public void sessionScopeChanged(Session session) {}
+    public void sessionScopeChanged(Session session) {
+        mapLocalMessageHandler.scopeChanged();
+    }
 
     @Override
     public void sessionModeChanged(Control.Mode mode) {
@@ -256,22 +455,33 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
     }
 
     private void readAllMapLocalsFromDB() {
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
         try {
-            List<Integer> mapLocIds = dbTableMapLocal.getMapLocalList();
-            for (Integer mapLocId : mapLocIds) {
-                RecordMapLocal recMapLoc = dbTableMapLocal.read(mapLocId);
-                MapLocalTableEntry mapLocal =
-                        new MapLocalTableEntry(
-                                recMapLoc.getUrlString(),
-                                MapLocalTableEntry.Match.valueOf(recMapLoc.getMatch()),
-                                recMapLoc.isIgnoreCase(),
-                                Path.of(recMapLoc.getLocalPath()));
-                mapLocal.setMapLocalId(mapLocId);
-                this.getMapLocalStatusPanel().addMapLocal(mapLocal);
-            }
+            dbTableMapLocal.readAll(
+                    recMapLoc -> {
+                        MapLocalTableEntry mapLocal =
+                                new MapLocalTableEntry(
+                                        recMapLoc.getUrlString(),
+                                        MapLocalTableEntry.Match.valueOf(recMapLoc.getMatch()),
+                                        recMapLoc.isIgnoreCase(),
+                                        Path.of(recMapLoc.getLocalPath()));
+                        mapLocal.setServeLocally(recMapLoc.isServeLocally());
+                        mapLocal.setContentType(recMapLoc.getContentType());
+                        mapLocal.setMapLocalId(recMapLoc.getMapLocalId());
+                        mapLocals.add(mapLocal);
+                    });
         } catch (DatabaseException e) {
             LOGGER.warn(e.getMessage(), e);
         }
+        addMapLocalsToModel(mapLocals);
+    }
+
+    private void addMapLocalsToModel(List<MapLocalTableEntry> mapLocals) {
+        if (ruleStore != null) {
+            ruleStore.addMapLocals(mapLocals);
+        } else {
+            this.getMapLocalStatusPanel().addMapLocals(mapLocals);
+        }
     }
 
     private PopupMenuEditMapLocal getPopupMenuEditMapLocal() {
@@ -298,6 +508,21 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
                 httpMessage, mode.equals(Control.Mode.protect));
     }
 
+    /**
+     * Serves the given request from the mapped local file, if the matching map local is served
+     * without contacting the server.
+     *
+     * @param httpMessage the message with the request.
+     * @return {@code true} if the response was set, {@code false} otherwise.
+     */
+    public boolean serveLocally(HttpMessage httpMessage) {
+        if (mode.equals(Control.Mode.safe)) {
+            return false;
+        }
+        return mapLocalMessageHandler.handleRequestToServer(
+                httpMessage, mode.equals(Control.Mode.protect));
+    }
+
     public ProxyListenerMapLocal getProxyListenerMapLocal() {
         if (proxyListenerMapLocal == null) {
             proxyListenerMapLocal = new ProxyListenerMapLocal(getModel(), this);
@@ -305,6 +530,13 @@ public class ExtensionMapLocal extends ExtensionAdaptor implements SessionChange
         return proxyListenerMapLocal;
     }
 
+    private OverrideMessageProxyListenerMapLocal getOverrideMessageProxyListenerMapLocal() {
+        if (overrideMessageProxyListenerMapLocal == null) {
+            overrideMessageProxyListenerMapLocal = new OverrideMessageProxyListenerMapLocal(this);
+        }
+        return overrideMessageProxyListenerMapLocal;
+    }
+
     @Override
     public void databaseOpen(Database db) throws DatabaseException, DatabaseUnsupportedException {
         db.addDatabaseListener(dbTableMapLocal);
@@ -0,0 +1,403 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.PatternSyntaxException;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.zaproxy.zap.extension.api.ApiAction;
+import org.zaproxy.zap.extension.api.ApiException;
+import org.zaproxy.zap.extension.api.ApiImplementor;
+import org.zaproxy.zap.extension.api.ApiResponse;
+import org.zaproxy.zap.extension.api.ApiResponseElement;
+import org.zaproxy.zap.extension.api.ApiResponseList;
+import org.zaproxy.zap.extension.api.ApiResponseSet;
+import org.zaproxy.zap.extension.api.ApiUtils;
+import org.zaproxy.zap.extension.api.ApiView;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentType;
+import org.zaproxy.zap.extension.maplocal.db.MapLocalWriteBehindQueue;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalResolutionCache;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalRuleSet;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalScopeCache;
+import org.zaproxy.zap.extension.maplocal.match.PathPrefix;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * The API of the Map Local add-on, to manage the map locals and get their statistics.
+ *
+ * <p>The bulk actions are applied as a single change, the message handler sees all or none of
+ * them.
+ */
+public class MapLocalAPI extends ApiImplementor {
+
+    private static final String PREFIX = "mapLocal";
+
+    private static final String ACTION_ADD_MAP_LOCAL = "addMapLocal";
+    private static final String ACTION_ADD_MAP_LOCALS = "addMapLocals";
+    private static final String ACTION_EDIT_MAP_LOCAL = "editMapLocal";
+    private static final String ACTION_REMOVE_MAP_LOCAL = "removeMapLocal";
+    private static final String ACTION_REMOVE_MAP_LOCALS = "removeMapLocals";
+    private static final String ACTION_SET_MAP_LOCAL_ENABLED = "setMapLocalEnabled";
+    private static final String ACTION_ENABLE_MAP_LOCALS = "enableMapLocals";
+    private static final String ACTION_DISABLE_MAP_LOCALS = "disableMapLocals";
+    private static final String ACTION_IMPORT_MAP_LOCALS = "importMapLocals";
+    private static final String ACTION_EXPORT_MAP_LOCALS = "exportMapLocals";
+
+    private static final String VIEW_MAP_LOCALS = "mapLocals";
+    private static final String VIEW_STATS = "stats";
+
+    private static final String PARAM_ID = "id";
+    private static final String PARAM_IDS = "ids";
+    private static final String PARAM_URL = "url";
+    private static final String PARAM_MATCH = "match";
+    private static final String PARAM_IGNORE_CASE = "ignoreCase";
+    private static final String PARAM_LOCAL_PATH = "localPath";
+    private static final String PARAM_SERVE_LOCALLY = "serveLocally";
+    private static final String PARAM_CONTENT_TYPE = "contentType";
+    private static final String PARAM_ENABLED = "enabled";
+    private static final String PARAM_MAP_LOCALS = "mapLocals";
+    private static final String PARAM_FILE = "file";
+
+    private final ExtensionMapLocal extension;
+
+    public MapLocalAPI(ExtensionMapLocal extension) {
+        this.extension = extension;
+
+        String[] mandatory = {PARAM_URL, PARAM_MATCH, PARAM_LOCAL_PATH};
+        String[] optional = {PARAM_IGNORE_CASE, PARAM_SERVE_LOCALLY, PARAM_CONTENT_TYPE};
+        this.addApiAction(new ApiAction(ACTION_ADD_MAP_LOCAL, mandatory, optional));
+        this.addApiAction(new ApiAction(ACTION_ADD_MAP_LOCALS, new String[] {PARAM_MAP_LOCALS}));
+        this.addApiAction(
+                new ApiAction(
+                        ACTION_EDIT_MAP_LOCAL,
+                        new String[] {PARAM_ID, PARAM_URL, PARAM_MATCH, PARAM_LOCAL_PATH},
+                        optional));
+        this.addApiAction(new ApiAction(ACTION_REMOVE_MAP_LOCAL, new String[] {PARAM_ID}));
+        this.addApiAction(new ApiAction(ACTION_REMOVE_MAP_LOCALS, new String[] {PARAM_IDS}));
+        this.addApiAction(
+                new ApiAction(
+                        ACTION_SET_MAP_LOCAL_ENABLED, new String[] {PARAM_ID, PARAM_ENABLED}));
+        this.addApiAction(new ApiAction(ACTION_ENABLE_MAP_LOCALS, new String[] {PARAM_IDS}));
+        this.addApiAction(new ApiAction(ACTION_DISABLE_MAP_LOCALS, new String[] {PARAM_IDS}));
+        this.addApiAction(new ApiAction(ACTION_IMPORT_MAP_LOCALS, new String[] {PARAM_FILE}));
+        this.addApiAction(new ApiAction(ACTION_EXPORT_MAP_LOCALS, new String[] {PARAM_FILE}));
+
+        this.addApiView(new ApiView(VIEW_MAP_LOCALS));
+        this.addApiView(new ApiView(VIEW_STATS));
+    }
+
+    @Override
+    public String getPrefix() {
+        return PREFIX;
+    }
+
+    @Override
+    public ApiResponse handleApiAction(String name, JSONObject params) throws ApiException {
+        switch (name) {
+            case ACTION_ADD_MAP_LOCAL:
+                MapLocalTableEntry mapLocal = createMapLocal(params);
+                extension.addMapLocal(mapLocal);
+                // Assign the id, to be returned
+                extension.getWriteBehindQueue().flush();
+                return new ApiResponseElement(PARAM_ID, String.valueOf(mapLocal.getMapLocalId()));
+
+            case ACTION_ADD_MAP_LOCALS:
+                List<MapLocalTableEntry> mapLocals = createMapLocals(params);
+                extension.addMapLocals(mapLocals);
+                extension.getWriteBehindQueue().flush();
+                ApiResponseList ids = new ApiResponseList(PARAM_IDS);
+                for (MapLocalTableEntry added : mapLocals) {
+                    ids.addItem(
+                            new ApiResponseElement(
+                                    PARAM_ID, String.valueOf(added.getMapLocalId())));
+                }
+                return ids;
+
+            case ACTION_EDIT_MAP_LOCAL:
+                MapLocalTableEntry oldMapLocal = getMapLocal(params);
+                MapLocalTableEntry newMapLocal = createMapLocal(params);
+                newMapLocal.setEnabled(oldMapLocal.isEnabled());
+                extension.editMapLocal(oldMapLocal, newMapLocal);
+                break;
+
+            case ACTION_REMOVE_MAP_LOCAL:
+                extension.removeMapLocal(getMapLocal(params));
+                break;
+
+            case ACTION_REMOVE_MAP_LOCALS:
+                extension.removeMapLocals(getMapLocals(params));
+                break;
+
+            case ACTION_SET_MAP_LOCAL_ENABLED:
+                extension.setMapLocalsEnabled(
+                        List.of(getMapLocal(params)),
+                        ApiUtils.getBooleanParam(params, PARAM_ENABLED));
+                break;
+
+            case ACTION_ENABLE_MAP_LOCALS:
+                extension.setMapLocalsEnabled(getMapLocals(params), true);
+                break;
+
+            case ACTION_DISABLE_MAP_LOCALS:
+                extension.setMapLocalsEnabled(getMapLocals(params), false);
+                break;
+
+            case ACTION_IMPORT_MAP_LOCALS:
+                try {
+                    int count = extension.importMapLocals(getFile(params));
+                    return new ApiResponseElement("count", String.valueOf(count));
+                } catch (IOException e) {
+                    throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_FILE, e);
+                }
+
+            case ACTION_EXPORT_MAP_LOCALS:
+                try {
+                    extension.exportMapLocals(getFile(params));
+                } catch (IOException e) {
+                    throw new ApiException(ApiException.Type.INTERNAL_ERROR, PARAM_FILE, e);
+                }
+                break;
+
+            default:
+                throw new ApiException(ApiException.Type.BAD_ACTION);
+        }
+        return ApiResponseElement.OK;
+    }
+
+    @Override
+    public ApiResponse handleApiView(String name, JSONObject params) throws ApiException {
+        switch (name) {
+            case VIEW_MAP_LOCALS:
+                ApiResponseList list = new ApiResponseList(VIEW_MAP_LOCALS);
+                for (MapLocalTableEntry mapLocal : extension.getMapLocals()) {
+                    list.addItem(new ApiResponseSet<>("mapLocal", toMap(mapLocal)));
+                }
+                return list;
+
+            case VIEW_STATS:
+                return new ApiResponseSet<>(VIEW_STATS, getStats());
+
+            default:
+                throw new ApiException(ApiException.Type.BAD_VIEW);
+        }
+    }
+
+    private static Map<String, Object> toMap(MapLocalTableEntry mapLocal) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(PARAM_ID, mapLocal.getMapLocalId());
+        map.put(PARAM_URL, mapLocal.getString());
+        map.put(PARAM_MATCH, mapLocal.getMatch().name());
+        map.put(PARAM_IGNORE_CASE, mapLocal.isIgnoreCase());
+        map.put(PARAM_LOCAL_PATH, mapLocal.getLocalPath().toString());
+        map.put(PARAM_SERVE_LOCALLY, mapLocal.isServeLocally());
+        map.put(
+                PARAM_CONTENT_TYPE,
+                mapLocal.getContentType() != null ? mapLocal.getContentType() : "");
+        map.put(PARAM_ENABLED, mapLocal.isEnabled());
+        map.put("hits", mapLocal.getHits());
+        return map;
+    }
+
+    private Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mapLocals", extension.getMapLocals().size());
+        MapLocalMessageHandler handler = extension.getMessageHandler();
+        if (handler != null) {
+            MapLocalRuleSet ruleSet = handler.getRuleSet();
+            stats.put("enabledMapLocals", ruleSet.getMapLocals().size());
+            stats.put("ruleSetVersion", ruleSet.getVersion());
+            stats.put("ruleSetIndexed", ruleSet.isIndexed());
+            stats.put("ruleSetFiltered", ruleSet.isFiltered());
+            stats.put("fastRejects", handler.getFastRejects());
+            stats.put("rangeResponses", handler.getRangeResponses());
+            stats.put("directoryListings", handler.getDirectoryResolver().getListingCount());
+
+            MapLocalScopeCache scopeCache = handler.getScopeCache();
+            stats.put("scopeCacheHits", scopeCache.getHits());
+            stats.put("scopeCacheMisses", scopeCache.getMisses());
+            stats.put("scopeCacheEntries", scopeCache.getEntryCount());
+
+            MapLocalResolutionCache resolutionCache = handler.getResolutionCache();
+            stats.put("resolutionCacheHits", resolutionCache.getHits());
+            stats.put("resolutionCacheMisses", resolutionCache.getMisses());
+            stats.put("resolutionCacheHitRate", resolutionCache.getHitRate());
+            stats.put("resolutionCacheEntries", resolutionCache.getEntryCount());
+        }
+
+        MapLocalContentCache cache = extension.getContentCache();
+        stats.put("cacheHits", cache.getHits());
+        stats.put("cacheMisses", cache.getMisses());
+        stats.put("cacheEvictions", cache.getEvictions());
+        stats.put("cacheEntries", cache.getEntryCount());
+        stats.put("cacheSize", cache.getSize());
+        stats.put("cacheMaxSize", cache.getMaxSize());
+
+        MapLocalWriteBehindQueue queue = extension.getWriteBehindQueue();
+        stats.put("persistQueueSize", queue.getQueueSize());
+        stats.put("persistMaxQueueSize", queue.getMaxQueueSize());
+        stats.put("persistEnqueued", queue.getEnqueued());
+        stats.put("persistCoalesced", queue.getCoalesced());
+        stats.put("persistWritten", queue.getWritten());
+        stats.put("persistFailed", queue.getFailed());
+        stats.put("persistLastWriteTime", queue.getLastWriteTime());
+        return stats;
+    }
+
+    private MapLocalTableEntry createMapLocal(JSONObject params) throws ApiException {
+        return createMapLocal(
+                ApiUtils.getNonEmptyStringParam(params, PARAM_URL),
+                ApiUtils.getNonEmptyStringParam(params, PARAM_MATCH),
+                getParam(params, PARAM_IGNORE_CASE, false),
+                ApiUtils.getNonEmptyStringParam(params, PARAM_LOCAL_PATH),
+                getParam(params, PARAM_SERVE_LOCALLY, false),
+                ApiUtils.getOptionalStringParam(params, PARAM_CONTENT_TYPE));
+    }
+
+    private List<MapLocalTableEntry> createMapLocals(JSONObject params) throws ApiException {
+        JSONArray array;
+        try {
+            array = JSONArray.fromObject(ApiUtils.getNonEmptyStringParam(params, PARAM_MAP_LOCALS));
+        } catch (JSONException e) {
+            throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_MAP_LOCALS, e);
+        }
+
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject object;
+            try {
+                object = array.getJSONObject(i);
+            } catch (JSONException e) {
+                throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_MAP_LOCALS, e);
+            }
+            if (!object.containsKey(PARAM_URL)
+                    || !object.containsKey(PARAM_MATCH)
+                    || !object.containsKey(PARAM_LOCAL_PATH)) {
+                throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_MAP_LOCALS);
+            }
+            mapLocals.add(
+                    createMapLocal(
+                            object.getString(PARAM_URL),
+                            object.getString(PARAM_MATCH),
+                            object.optBoolean(PARAM_IGNORE_CASE, false),
+                            object.getString(PARAM_LOCAL_PATH),
+                            object.optBoolean(PARAM_SERVE_LOCALLY, false),
+                            object.optString(PARAM_CONTENT_TYPE, null)));
+        }
+        return mapLocals;
+    }
+
+    private static MapLocalTableEntry createMapLocal(
+            String url,
+            String matchName,
+            boolean ignoreCase,
+            String localPath,
+            boolean local,
+            String contentType)
+            throws ApiException {
+        MapLocalTableEntry.Match match;
+        try {
+            match = MapLocalTableEntry.Match.valueOf(matchName);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_MATCH);
+        }
+        if (MapLocalTableEntry.Match.regex.equals(match)) {
+            try {
+                MapLocalTableEntry.compileRegex(url, ignoreCase);
+            } catch (PatternSyntaxException e) {
+                throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_URL);
+            }
+        } else if (MapLocalTableEntry.Match.prefix.equals(match)
+                && PathPrefix.of(url, false) == null) {
+            throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_URL);
+        }
+
+        Path path;
+        try {
+            path = Path.of(localPath);
+        } catch (InvalidPathException e) {
+            throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_LOCAL_PATH);
+        }
+        if (!Files.isReadable(path)) {
+            throw new ApiException(ApiException.Type.DOES_NOT_EXIST, PARAM_LOCAL_PATH);
+        }
+
+        if (contentType != null
+                && !contentType.isBlank()
+                && !MapLocalContentType.isValid(contentType)) {
+            throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_CONTENT_TYPE);
+        }
+
+        MapLocalTableEntry mapLocal = new MapLocalTableEntry(url, match, ignoreCase, path);
+        mapLocal.setServeLocally(local);
+        mapLocal.setContentType(contentType);
+        return mapLocal;
+    }
+
+    private static Path getFile(JSONObject params) throws ApiException {
+        try {
+            return Path.of(ApiUtils.getNonEmptyStringParam(params, PARAM_FILE));
+        } catch (InvalidPathException e) {
+            throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_FILE);
+        }
+    }
+
+    private MapLocalTableEntry getMapLocal(JSONObject params) throws ApiException {
+        int id = ApiUtils.getIntParam(params, PARAM_ID);
+        for (MapLocalTableEntry mapLocal : extension.getMapLocals()) {
+            if (mapLocal.getMapLocalId() == id) {
+                return mapLocal;
+            }
+        }
+        throw new ApiException(ApiException.Type.DOES_NOT_EXIST, PARAM_ID);
+    }
+
+    private List<MapLocalTableEntry> getMapLocals(JSONObject params) throws ApiException {
+        Map<Integer, MapLocalTableEntry> byId = new HashMap<>();
+        for (MapLocalTableEntry mapLocal : extension.getMapLocals()) {
+            byId.put(mapLocal.getMapLocalId(), mapLocal);
+        }
+
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+        for (String id : ApiUtils.getNonEmptyStringParam(params, PARAM_IDS).split(",")) {
+            MapLocalTableEntry mapLocal;
+            try {
+                mapLocal = byId.get(Integer.parseInt(id.trim()));
+            } catch (NumberFormatException e) {
+                throw new ApiException(ApiException.Type.ILLEGAL_PARAMETER, PARAM_IDS);
+            }
+            if (mapLocal == null) {
+                throw new ApiException(ApiException.Type.DOES_NOT_EXIST, PARAM_IDS);
+            }
+            mapLocals.add(mapLocal);
+        }
+        return mapLocals;
+    }
+}
@@ -20,56 +20,799 @@
 package org.zaproxy.zap.extension.maplocal;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
-import java.util.Iterator;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.parosproxy.paros.network.HttpHeader;
+import org.parosproxy.paros.network.HttpMalformedHeaderException;
 import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.parosproxy.paros.network.HttpResponseBody;
+import org.parosproxy.paros.network.HttpResponseHeader;
+import org.parosproxy.paros.network.HttpStatusCode;
 import org.zaproxy.zap.extension.httppanel.Message;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalByteRanges;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalConditionalRequest;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCoding;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalDirectoryResolver;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalMatchContext;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalResolutionCache;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalRuleSet;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalScopeCache;
+import org.zaproxy.zap.extension.maplocal.match.PathPrefix;
 import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
 
 public class MapLocalMessageHandler {
 
     private static final Logger LOGGER = LogManager.getLogger(MapLocalMessageHandler.class);
-    protected static final Object SEMAPHORE = new Object();
 
-    protected List<MapLocalTableEntry> enabledMapLocals;
+    private static final long MIB = 1024L * 1024L;
 
+    /** The maximum size of a body, the largest array that can be allocated. */
+    private static final long MAX_BODY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** The size of the reads of large files, bounds the temporary buffers of the channel. */
+    private static final int READ_CHUNK_SIZE = 1024 * 1024;
+
+    /** The minimum size of the files compressed on the fly, smaller ones are not worth it. */
+    private static final long MIN_GZIP_SIZE = 64;
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String VARY = "Vary";
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String CONTENT_RANGE = "Content-Range";
+
+    private final MapLocalContentCache contentCache;
+    private final MapLocalDirectoryResolver directoryResolver = new MapLocalDirectoryResolver();
+    private volatile String indexFile = MapLocalParam.DEFAULT_INDEX_FILE;
+    private final MapLocalScopeCache scopeCache;
+    private final MapLocalResolutionCache resolutionCache = new MapLocalResolutionCache();
+    private final LongAdder fastRejects = new LongAdder();
+    private final LongAdder rangeResponses = new LongAdder();
+
+    private volatile long largeFileThreshold =
+            MapLocalParam.DEFAULT_LARGE_FILE_THRESHOLD * MIB;
+
+    private final AtomicReference<MapLocalRuleSet> ruleSet =
+            new AtomicReference<>(MapLocalRuleSet.EMPTY);
+    private final AtomicLong ruleSetVersion = new AtomicLong();
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor =
+            Executors.newSingleThreadExecutor(
+                    r -> {
+                        Thread thread = new Thread(r, "ZAP-MapLocal-RuleIndex");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    public MapLocalMessageHandler(MapLocalContentCache contentCache) {
+        this(contentCache, new MapLocalScopeCache());
+    }
+
+    MapLocalMessageHandler(MapLocalContentCache contentCache, MapLocalScopeCache scopeCache) {
+        this.contentCache = contentCache;
+        this.scopeCache = scopeCache;
+    }
+
+    /**
+     * Publishes a new snapshot with the given enabled map locals.
+     *
+     * <p>The list is copied, later changes to it have no effect. The rule index of the snapshot is
+     * built in the background. The directory mappings are resolved anew, see {@link
+     * MapLocalDirectoryResolver#clear()}.
+     *
+     * @param enabledMapLocals the enabled map locals, in order of evaluation.
+     */
     public void setEnabledMapLocals(List<MapLocalTableEntry> enabledMapLocals) {
-        this.enabledMapLocals = enabledMapLocals;
+        ruleSet.set(new MapLocalRuleSet(ruleSetVersion.incrementAndGet(), enabledMapLocals));
+        directoryResolver.clear();
+        if (rebuildPending.compareAndSet(false, true)) {
+            try {
+                rebuildExecutor.execute(this::indexRuleSet);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                rebuildPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * Sets the size above which the files are read directly into the response body, instead of
+     * through the content cache.
+     *
+     * @param thresholdMib the size, in MiB.
+     */
+    public void setLargeFileThreshold(int thresholdMib) {
+        largeFileThreshold = Math.max(0, thresholdMib) * MIB;
+    }
+
+    /**
+     * Sets the name of the file served for the directories of directory mappings.
+     *
+     * @param indexFile the name of the file, empty if none.
+     */
+    public void setIndexFile(String indexFile) {
+        this.indexFile = indexFile == null ? "" : indexFile;
+    }
+
+    public MapLocalDirectoryResolver getDirectoryResolver() {
+        return directoryResolver;
+    }
+
+    public MapLocalScopeCache getScopeCache() {
+        return scopeCache;
+    }
+
+    public MapLocalResolutionCache getResolutionCache() {
+        return resolutionCache;
+    }
+
+    /**
+     * Gets the number of messages rejected by the filter of the rule set, without checking the map
+     * locals.
+     *
+     * @return the number of messages.
+     */
+    public long getFastRejects() {
+        return fastRejects.sum();
+    }
+
+    /**
+     * Gets the number of responses with byte ranges of the local files, partial or not
+     * satisfiable.
+     *
+     * @return the number of responses.
+     */
+    public long getRangeResponses() {
+        return rangeResponses.sum();
+    }
+
+    /** Clears the cached scope decisions and the map locals resolved with them. */
+    public void scopeChanged() {
+        scopeCache.clear();
+        resolutionCache.clear();
+    }
+
+    public MapLocalRuleSet getRuleSet() {
+        return ruleSet.get();
+    }
+
+    private void indexRuleSet() {
+        rebuildPending.set(false);
+
+        MapLocalRuleSet current = ruleSet.get();
+        if (current.isIndexed()) {
+            return;
+        }
+        // Discarded if a newer snapshot was published meanwhile, it has its own rebuild
+        ruleSet.compareAndSet(current, current.indexed());
+    }
+
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
     }
 
     protected MapLocalTableEntry findEnabledMapLocal(
             Message aMessage, boolean isRequest, boolean onlyIfInScope) {
-        if (enabledMapLocals.isEmpty()) return null;
+        return find(
+                ruleSet.get(),
+                MapLocalMatchContext.of(aMessage, isRequest, onlyIfInScope, scopeCache));
+    }
+
+    private MapLocalTableEntry find(MapLocalRuleSet current, MapLocalMatchContext context) {
+        if (context == null || current.isEmpty()) {
+            return null;
+        }
+        if (!current.mightMatch(context)) {
+            fastRejects.increment();
+            return null;
+        }
+        return resolutionCache.find(current, context);
+    }
+
+    /**
+     * Creates the response from the local file, if the matching map local is served without
+     * contacting the server.
+     *
+     * @param msg the message with the request.
+     * @param onlyIfInScope {@code true} if only messages in scope should be mapped.
+     * @return {@code true} if the response was set, {@code false} if the request should be sent to
+     *     the server.
+     */
+    public boolean handleRequestToServer(HttpMessage msg, boolean onlyIfInScope) {
+        MapLocalRuleSet current = ruleSet.get();
+        if (!current.hasServeLocally()) {
+            return false;
+        }
+        MapLocalMatchContext context =
+                MapLocalMatchContext.of(msg, false, onlyIfInScope, scopeCache);
+        MapLocalTableEntry mapLocal = find(current, context);
+        if (mapLocal == null || !mapLocal.isServeLocally()) {
+            return false;
+        }
 
-        synchronized (enabledMapLocals) {
-            Iterator<MapLocalTableEntry> it = enabledMapLocals.iterator();
+        Path path = resolveLocalPath(mapLocal, context);
+        LocalContent content =
+                path == null ? null : readLocalContent(path, mapLocal, msg.getRequestHeader());
+        if (content == null) {
+            // Let the server answer instead
+            return false;
+        }
+        HttpResponseHeader responseHeader;
+        try {
+            responseHeader = new HttpResponseHeader(createResponseHeader(content));
+        } catch (HttpMalformedHeaderException e) {
+            LOGGER.warn(e.getMessage(), e);
+            return false;
+        }
+        msg.setTimeSentMillis(System.currentTimeMillis());
+        msg.setTimeElapsedMillis(0);
+        msg.setResponseHeader(responseHeader);
+        msg.setResponseBody(content.isNotModified() ? new HttpResponseBody() : content.body);
+        mapLocal.recordHit();
+        return true;
+    }
 
-            while (it.hasNext()) {
-                MapLocalTableEntry mapLocal = it.next();
+    private static String createResponseHeader(LocalContent content) {
+        StringBuilder header = new StringBuilder(256).append(HttpHeader.HTTP11);
+        if (content.isNotModified()) {
+            header.append(" 304 Not Modified").append(HttpHeader.CRLF);
+            appendValidators(header, content);
+            header.append(VARY).append(": ").append(ACCEPT_ENCODING).append(HttpHeader.CRLF);
+            return header.append(HttpHeader.CRLF).toString();
+        }
 
-                if (mapLocal.match(aMessage, isRequest, onlyIfInScope)) {
-                    return mapLocal;
+        header.append(' ')
+                .append(content.statusCode)
+                .append(' ')
+                .append(HttpStatusCode.getMessage(content.statusCode))
+                .append(HttpHeader.CRLF);
+        appendValidators(header, content);
+        header.append(ACCEPT_RANGES).append(": bytes").append(HttpHeader.CRLF);
+        if (content.contentType != null) {
+            header.append(HttpHeader.CONTENT_TYPE)
+                    .append(": ")
+                    .append(content.contentType)
+                    .append(HttpHeader.CRLF);
+        }
+        if (content.contentCoding != null) {
+            header.append(HttpHeader.CONTENT_ENCODING)
+                    .append(": ")
+                    .append(content.contentCoding)
+                    .append(HttpHeader.CRLF);
+        }
+        if (content.contentRange != null) {
+            header.append(CONTENT_RANGE)
+                    .append(": ")
+                    .append(content.contentRange)
+                    .append(HttpHeader.CRLF);
+        }
+        header.append(VARY).append(": ").append(ACCEPT_ENCODING).append(HttpHeader.CRLF);
+        header.append(HttpHeader.CONTENT_LENGTH)
+                .append(": ")
+                .append(content.contentLength)
+                .append(HttpHeader.CRLF)
+                .append(HttpHeader.CRLF);
+        return header.toString();
+    }
+
+    private static void appendValidators(StringBuilder header, LocalContent content) {
+        header.append(MapLocalConditionalRequest.ETAG)
+                .append(": ")
+                .append(content.etag)
+                .append(HttpHeader.CRLF)
+                .append(MapLocalConditionalRequest.LAST_MODIFIED)
+                .append(": ")
+                .append(MapLocalConditionalRequest.formatHttpDate(content.lastModified))
+                .append(HttpHeader.CRLF);
+    }
+
+    /**
+     * Gets the local file for the message, the local path of the map local or, for directory
+     * mappings (a {@code prefix} map local with a directory), the file under the directory.
+     *
+     * @return the file, or {@code null} if the directory has no file for the message.
+     */
+    private Path resolveLocalPath(MapLocalTableEntry mapLocal, MapLocalMatchContext context) {
+        PathPrefix prefix = mapLocal.getPathPrefix();
+        Path localPath = mapLocal.getLocalPath();
+        if (prefix == null || !directoryResolver.isDirectory(localPath)) {
+            return localPath;
+        }
+        return directoryResolver.resolve(
+                localPath, context.getPathSegments(), prefix.getSegmentCount(), indexFile);
+    }
+
+    /**
+     * Reads the content of the given local file, in the best content coding accepted, unless the
+     * client already has it.
+     *
+     * <p>Brotli is used only if there is a precompressed sibling file ({@code .br}), gzip if there
+     * is one ({@code .gz}) or if the content is text based, compressed once and cached with the
+     * content. The sibling files are not used if older than the file. The accepted coding with the
+     * highest quality is used, brotli if the same. The entity tag is the one of the file served,
+     * the sibling file if used.
+     *
+     * <p>The byte ranges are served only of the file itself, not compressed, and only if the
+     * If-Range (if any) matches the file. Otherwise the whole content is served, compressed as any
+     * other.
+     *
+     * <p>The validators are checked before reading the body, the file is not read if not modified.
+     * Otherwise it is read at most once, for HEAD requests only if compressed, for its length.
+     *
+     * <p>The Content-Type is the one of the map local, if set, otherwise the one inferred for the
+     * file, cached with its content (see {@link MapLocalContentCache#getValidator(Path, long)}).
+     *
+     * @param path the local file.
+     * @param mapLocal the map local that mapped the file.
+     * @param request the request header, with the Accept-Encoding, Range and conditional headers.
+     * @return the content, or {@code null} if the file could not be read.
+     */
+    private LocalContent readLocalContent(
+            Path path, MapLocalTableEntry mapLocal, HttpRequestHeader request) {
+        MapLocalContentCache.Validator validator;
+        MapLocalContentCache.Validator served;
+        MapLocalByteRanges ranges = null;
+        boolean gzip = false;
+        Path source = null;
+        String contentCoding = null;
+        String contentType;
+        long lastModified;
+        try {
+            validator = contentCache.getValidator(path, largeFileThreshold);
+            contentType =
+                    mapLocal.getContentType() != null
+                            ? mapLocal.getContentType()
+                            : validator.getContentType();
+
+            lastModified = validator.getLastModified();
+
+            if (HttpRequestHeader.GET.equals(request.getMethod())) {
+                ranges =
+                        MapLocalByteRanges.parse(
+                                request.getHeader(MapLocalByteRanges.RANGE), validator.getSize());
+            }
+            if (ranges != null
+                    && !MapLocalConditionalRequest.isRangeApplicable(
+                            request,
+                            MapLocalConditionalRequest.createETag(validator, null),
+                            lastModified)) {
+                // The whole file instead, as if not requested
+                ranges = null;
+            }
+            if (ranges == null) {
+                // The ranges are of the file, not of a coding
+                String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+                for (String coding :
+                        MapLocalContentCoding.getAccepted(
+                                acceptEncoding,
+                                MapLocalContentCoding.BROTLI,
+                                MapLocalContentCoding.GZIP)) {
+                    if (MapLocalContentCoding.BROTLI.equals(coding)) {
+                        source = getPrecompressed(path, ".br");
+                    } else {
+                        source = getPrecompressed(path, ".gz");
+                        gzip =
+                                source == null
+                                        && MapLocalContentCoding.isCompressible(contentType)
+                                        && validator.getSize() >= MIN_GZIP_SIZE
+                                        && validator.getSize() <= largeFileThreshold;
+                    }
+                    if (source != null || gzip) {
+                        contentCoding = coding;
+                        break;
+                    }
                 }
             }
+            if (source == null) {
+                source = path;
+                served = validator;
+            } else {
+                served = contentCache.getValidator(source, largeFileThreshold);
+            }
+        } catch (IOException e) {
+            LOGGER.warn(e.getMessage(), e);
+            return null;
         }
-        return null;
-    }
 
-    public boolean handleMessageReceivedFromServer(HttpMessage msg, boolean onlyIfInScope) {
-        MapLocalTableEntry mapLocal = findEnabledMapLocal(msg, false, onlyIfInScope);
-        if (mapLocal != null) {
+        String etag = MapLocalConditionalRequest.createETag(served, contentCoding);
+        if (MapLocalConditionalRequest.isNotModified(request, etag, lastModified)) {
+            return new LocalContent(
+                    HttpStatusCode.NOT_MODIFIED,
+                    null,
+                    0,
+                    null,
+                    contentCoding,
+                    contentType,
+                    etag,
+                    lastModified);
+        }
+
+        if (ranges != null) {
+            rangeResponses.increment();
+            if (ranges.isEmpty()) {
+                return new LocalContent(
+                        HttpStatusCode.REQUESTED_RANGE_NOT_SATISFIABLE,
+                        new HttpResponseBody(),
+                        0,
+                        MapLocalByteRanges.getUnsatisfiedContentRange(validator.getSize()),
+                        null,
+                        contentType,
+                        etag,
+                        lastModified);
+            }
             try {
-                synchronized (SEMAPHORE) {
-                    msg.setResponseBody(Files.readAllBytes(mapLocal.getLocalPath()));
-                    msg.getResponseHeader().setContentLength(msg.getResponseBody().length());
+                return readRanges(
+                        path,
+                        validator.getContent(),
+                        ranges,
+                        validator.getSize(),
+                        contentType,
+                        etag,
+                        lastModified);
+            } catch (IOException e) {
+                LOGGER.warn(e.getMessage(), e);
+                return null;
+            }
+        }
+
+        byte[] gzipContent = null;
+        if (gzip) {
+            try {
+                byte[] content = validator.getContent();
+                if (content == null) {
+                    content = contentCache.getContent(path, largeFileThreshold);
                 }
+                if (content == null) {
+                    LOGGER.warn("File changed while being served: {}", path);
+                    return null;
+                }
+                gzipContent = contentCache.getGzipContent(path, content);
             } catch (IOException e) {
                 LOGGER.warn(e.getMessage(), e);
+                return null;
+            }
+        }
+
+        if (HttpRequestHeader.HEAD.equals(request.getMethod())) {
+            // Just the headers, the same as for GET
+            long contentLength = gzipContent != null ? gzipContent.length : served.getSize();
+            return new LocalContent(
+                    HttpStatusCode.OK,
+                    new HttpResponseBody(),
+                    contentLength,
+                    null,
+                    contentCoding,
+                    contentType,
+                    etag,
+                    lastModified);
+        }
+
+        HttpResponseBody body =
+                gzipContent != null
+                        ? new HttpResponseBody(gzipContent)
+                        : readResponseBody(source, served.getContent());
+        if (body == null) {
+            return null;
+        }
+        return new LocalContent(
+                HttpStatusCode.OK,
+                body,
+                body.length(),
+                null,
+                contentCoding,
+                contentType,
+                etag,
+                lastModified);
+    }
+
+    /**
+     * Reads the given ranges of the file, a single range as the body, several as a
+     * multipart/byteranges body.
+     *
+     * <p>The ranges of cached files are copied from the cached content, those of other files are
+     * read with positioned reads, only the bytes of the ranges are read.
+     */
+    private static LocalContent readRanges(
+            Path path,
+            byte[] content,
+            MapLocalByteRanges ranges,
+            long size,
+            String contentType,
+            String etag,
+            long lastModified)
+            throws IOException {
+        if (ranges.size() == 1) {
+            byte[] target = createContent(ranges.getLength(0));
+            readRange(path, content, ranges.getStart(0), target, 0, target.length);
+            HttpResponseBody body = new MapLocalResponseBody(target);
+            return new LocalContent(
+                    HttpStatusCode.PARTIAL_CONTENT,
+                    body,
+                    body.length(),
+                    ranges.getContentRange(0, size),
+                    null,
+                    contentType,
+                    etag,
+                    lastModified);
+        }
+
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long length = ranges.getTotalLength();
+        for (int i = 0; i < ranges.size(); i++) {
+            StringBuilder partHeader = new StringBuilder(128);
+            partHeader.append("--").append(boundary).append(HttpHeader.CRLF);
+            if (contentType != null) {
+                partHeader
+                        .append(HttpHeader.CONTENT_TYPE)
+                        .append(": ")
+                        .append(contentType)
+                        .append(HttpHeader.CRLF);
+            }
+            partHeader
+                    .append(CONTENT_RANGE)
+                    .append(": ")
+                    .append(ranges.getContentRange(i, size))
+                    .append(HttpHeader.CRLF)
+                    .append(HttpHeader.CRLF);
+            partHeaders[i] = partHeader.toString().getBytes(StandardCharsets.US_ASCII);
+            length += partHeaders[i].length + HttpHeader.CRLF.length();
+        }
+        byte[] end = ("--" + boundary + "--" + HttpHeader.CRLF).getBytes(StandardCharsets.US_ASCII);
+        length += end.length;
+
+        byte[] target = createContent(length);
+        int offset = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            System.arraycopy(partHeaders[i], 0, target, offset, partHeaders[i].length);
+            offset += partHeaders[i].length;
+            int rangeLength = (int) ranges.getLength(i);
+            readRange(path, content, ranges.getStart(i), target, offset, rangeLength);
+            offset += rangeLength;
+            target[offset++] = '\r';
+            target[offset++] = '\n';
+        }
+        System.arraycopy(end, 0, target, offset, end.length);
+        HttpResponseBody body = new MapLocalResponseBody(target);
+        return new LocalContent(
+                HttpStatusCode.PARTIAL_CONTENT,
+                body,
+                body.length(),
+                null,
+                null,
+                "multipart/byteranges; boundary=" + boundary,
+                etag,
+                lastModified);
+    }
+
+    private static byte[] createContent(long length) throws IOException {
+        if (length > MAX_BODY_SIZE) {
+            throw new IOException("Ranges too large to be served: " + length);
+        }
+        return new byte[(int) length];
+    }
+
+    /**
+     * Reads a range of the file into the target, from the cached content, if not {@code null},
+     * otherwise with positioned reads of the file, in chunks.
+     */
+    private static void readRange(
+            Path path, byte[] content, long start, byte[] target, int offset, int length)
+            throws IOException {
+        if (content != null) {
+            System.arraycopy(content, (int) start, target, offset, length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int read = 0;
+            while (read < length) {
+                int len = Math.min(READ_CHUNK_SIZE, length - read);
+                int count = channel.read(ByteBuffer.wrap(target, offset + read, len), start + read);
+                if (count < 0) {
+                    throw new IOException("File truncated while reading: " + path);
+                }
+                read += count;
+            }
+        }
+    }
+
+    /** Gets the precompressed sibling of the given file, {@code null} if none or stale. */
+    private static Path getPrecompressed(Path path, String extension) {
+        Path sibling = path.resolveSibling(path.getFileName() + extension);
+        try {
+            if (Files.getLastModifiedTime(sibling).compareTo(Files.getLastModifiedTime(path)) < 0) {
+                // Stale, the file was changed after being compressed
+                return null;
+            }
+        } catch (IOException e) {
+            // No sibling file
+            return null;
+        }
+        return sibling;
+    }
+
+    /**
+     * Reads the body from the given local file.
+     *
+     * <p>The body copies the (shared) cached content, if given. Otherwise files up to the large
+     * file threshold are read through the content cache, larger files directly into the body.
+     *
+     * @param path the local file.
+     * @param content the cached content of the file, {@code null} if not cached.
+     * @return the body, or {@code null} if the file could not be read.
+     */
+    private HttpResponseBody readResponseBody(Path path, byte[] content) {
+        if (content != null) {
+            return new HttpResponseBody(content);
+        }
+        try {
+            content = contentCache.getContent(path, largeFileThreshold);
+            if (content != null) {
+                return new HttpResponseBody(content);
+            }
+            return readLargeFile(path);
+        } catch (IOException e) {
+            LOGGER.warn(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the given file directly into the array of a new body, in chunks, so that there is no
+     * intermediate copy of the whole file in the heap.
+     *
+     * @see MapLocalResponseBody
+     */
+    private static HttpResponseBody readLargeFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAX_BODY_SIZE) {
+                throw new IOException("File too large to be served: " + path);
+            }
+
+            byte[] target = new byte[(int) size];
+            int read = 0;
+            while (read < target.length) {
+                int len = Math.min(READ_CHUNK_SIZE, target.length - read);
+                int count = channel.read(ByteBuffer.wrap(target, read, len));
+                if (count < 0) {
+                    break;
+                }
+                read += count;
+            }
+
+            if (read < target.length) {
+                // Truncated while reading
+                target = Arrays.copyOf(target, read);
             }
+            return new MapLocalResponseBody(target);
+        }
+    }
+
+    public boolean handleMessageReceivedFromServer(HttpMessage msg, boolean onlyIfInScope) {
+        MapLocalMatchContext context =
+                MapLocalMatchContext.of(msg, false, onlyIfInScope, scopeCache);
+        MapLocalTableEntry mapLocal = find(ruleSet.get(), context);
+        if (mapLocal == null) {
+            return true;
+        }
+
+        Path path = resolveLocalPath(mapLocal, context);
+        LocalContent content =
+                path == null ? null : readLocalContent(path, mapLocal, msg.getRequestHeader());
+        if (content == null) {
+            return true;
         }
+        // The message is confined to the calling proxy thread, no need to lock.
+        HttpResponseHeader responseHeader = msg.getResponseHeader();
+        mapLocal.recordHit();
+        responseHeader.setHeader(MapLocalConditionalRequest.ETAG, content.etag);
+        responseHeader.setHeader(
+                MapLocalConditionalRequest.LAST_MODIFIED,
+                MapLocalConditionalRequest.formatHttpDate(content.lastModified));
+        addVaryAcceptEncoding(responseHeader);
+        responseHeader.setHeader(ACCEPT_RANGES, "bytes");
+        if (content.isNotModified()) {
+            responseHeader.setStatusCode(HttpStatusCode.NOT_MODIFIED);
+            responseHeader.setReasonPhrase(HttpStatusCode.getMessage(HttpStatusCode.NOT_MODIFIED));
+            responseHeader.setHeader(HttpHeader.CONTENT_ENCODING, null);
+            responseHeader.setHeader(HttpHeader.CONTENT_LENGTH, null);
+            msg.setResponseBody(new HttpResponseBody());
+            return true;
+        }
+
+        int statusCode = responseHeader.getStatusCode();
+        if (content.statusCode != HttpStatusCode.OK
+                || statusCode == HttpStatusCode.NOT_MODIFIED
+                || statusCode == HttpStatusCode.PARTIAL_CONTENT
+                || statusCode == HttpStatusCode.REQUESTED_RANGE_NOT_SATISFIABLE) {
+            // The status of the server is for its content, not the local one
+            responseHeader.setStatusCode(content.statusCode);
+            responseHeader.setReasonPhrase(HttpStatusCode.getMessage(content.statusCode));
+        }
+        responseHeader.setHeader(CONTENT_RANGE, content.contentRange);
+        // The server's Content-Type is for its content, not the local one
+        responseHeader.setHeader(HttpHeader.CONTENT_TYPE, content.contentType);
+        msg.setResponseBody(content.body);
+        // Replaces the coding of the server's body, removed if none
+        responseHeader.setHeader(HttpHeader.CONTENT_ENCODING, content.contentCoding);
+        responseHeader.setHeader(
+                HttpHeader.CONTENT_LENGTH, Long.toString(content.contentLength));
         return true;
     }
+
+    private static void addVaryAcceptEncoding(HttpResponseHeader header) {
+        String vary = header.getHeader(VARY);
+        if (vary == null || vary.isBlank()) {
+            header.setHeader(VARY, ACCEPT_ENCODING);
+        } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding")
+                && !"*".equals(vary.trim())) {
+            header.setHeader(VARY, vary + ", " + ACCEPT_ENCODING);
+        }
+    }
+
+    /**
+     * The content of a local file, in the content coding chosen for the response, in full or the
+     * requested ranges.
+     */
+    private static class LocalContent {
+
+        private final int statusCode;
+
+        /** The body, {@code null} if not modified, empty for HEAD requests. */
+        private final HttpResponseBody body;
+
+        /** The length of the content, even if not in the body. */
+        private final long contentLength;
+
+        /** The Content-Range of a single range, {@code null} if none. */
+        private final String contentRange;
+
+        private final String contentCoding;
+        private final String contentType;
+        private final String etag;
+        private final long lastModified;
+
+        LocalContent(
+                int statusCode,
+                HttpResponseBody body,
+                long contentLength,
+                String contentRange,
+                String contentCoding,
+                String contentType,
+                String etag,
+                long lastModified) {
+            this.statusCode = statusCode;
+            this.body = body;
+            this.contentLength = contentLength;
+            this.contentRange = contentRange;
+            this.contentCoding = contentCoding;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        boolean isNotModified() {
+            return statusCode == HttpStatusCode.NOT_MODIFIED;
+        }
+    }
 }
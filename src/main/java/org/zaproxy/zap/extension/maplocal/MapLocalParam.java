@@ -0,0 +1,114 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import org.parosproxy.paros.common.AbstractParam;
+
+/** The options of the Map Local add-on. */
+public class MapLocalParam extends AbstractParam {
+
+    static final String PARAM_BASE_KEY = "maplocal";
+
+    private static final String CACHE_MAX_SIZE_KEY = PARAM_BASE_KEY + ".cacheMaxSize";
+    private static final String WATCH_FILES_KEY = PARAM_BASE_KEY + ".watchFiles";
+    private static final String LARGE_FILE_THRESHOLD_KEY = PARAM_BASE_KEY + ".largeFileThreshold";
+    private static final String INDEX_FILE_KEY = PARAM_BASE_KEY + ".indexFile";
+
+    /** The default size of the content cache, in MiB. */
+    public static final int DEFAULT_CACHE_MAX_SIZE = 64;
+
+    /** The default size above which the files are not cached, in MiB. */
+    public static final int DEFAULT_LARGE_FILE_THRESHOLD = 16;
+
+    /** The default file served for the directories of directory mappings. */
+    public static final String DEFAULT_INDEX_FILE = "index.html";
+
+    private int cacheMaxSize;
+    private boolean watchFiles;
+    private int largeFileThreshold;
+    private String indexFile;
+
+    @Override
+    protected void parse() {
+        cacheMaxSize = Math.max(0, getInt(CACHE_MAX_SIZE_KEY, DEFAULT_CACHE_MAX_SIZE));
+        watchFiles = getBoolean(WATCH_FILES_KEY, true);
+        largeFileThreshold =
+                Math.max(0, getInt(LARGE_FILE_THRESHOLD_KEY, DEFAULT_LARGE_FILE_THRESHOLD));
+        indexFile = getString(INDEX_FILE_KEY, DEFAULT_INDEX_FILE).trim();
+    }
+
+    /**
+     * Gets the maximum size of the content cache.
+     *
+     * @return the size, in MiB. Zero if the cache is disabled.
+     */
+    public int getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(int cacheMaxSize) {
+        this.cacheMaxSize = Math.max(0, cacheMaxSize);
+        getConfig().setProperty(CACHE_MAX_SIZE_KEY, this.cacheMaxSize);
+    }
+
+    /**
+     * Tells whether or not the mapped files are watched for changes, instead of checking their
+     * size and last modified time on each response.
+     *
+     * @return {@code true} if the files are watched, {@code false} otherwise.
+     */
+    public boolean isWatchFiles() {
+        return watchFiles;
+    }
+
+    public void setWatchFiles(boolean watchFiles) {
+        this.watchFiles = watchFiles;
+        getConfig().setProperty(WATCH_FILES_KEY, watchFiles);
+    }
+
+    /**
+     * Gets the size above which the files are read directly into the response, instead of
+     * through the content cache.
+     *
+     * @return the size, in MiB.
+     */
+    public int getLargeFileThreshold() {
+        return largeFileThreshold;
+    }
+
+    public void setLargeFileThreshold(int largeFileThreshold) {
+        this.largeFileThreshold = Math.max(0, largeFileThreshold);
+        getConfig().setProperty(LARGE_FILE_THRESHOLD_KEY, this.largeFileThreshold);
+    }
+
+    /**
+     * Gets the name of the file served for the directories of directory mappings.
+     *
+     * @return the name of the file, empty if none.
+     */
+    public String getIndexFile() {
+        return indexFile;
+    }
+
+    public void setIndexFile(String indexFile) {
+        this.indexFile = indexFile == null ? "" : indexFile.trim();
+        getConfig().setProperty(INDEX_FILE_KEY, this.indexFile);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import org.parosproxy.paros.network.HttpResponseBody;
+
+/**
+ * A response body with content read for it, kept without copying.
+ *
+ * <p>The content is owned by the body, it is copied to the superclass (as any other body) only
+ * once the body is changed or compared, the reads of the bytes and the length use it directly.
+ */
+final class MapLocalResponseBody extends HttpResponseBody {
+
+    /** The content read, {@code null} once copied to the superclass. */
+    private byte[] content;
+
+    /**
+     * Constructs a {@code MapLocalResponseBody} with the given content.
+     *
+     * @param content the content, must not be used by the caller afterwards.
+     */
+    MapLocalResponseBody(byte[] content) {
+        this.content = content;
+    }
+
+    @Override
+    public byte[] getBytes() {
+        return content != null ? content : super.getBytes();
+    }
+
+    @Override
+    public int length() {
+        return content != null ? content.length : super.length();
+    }
+
+    @Override
+    public void setBody(byte[] contents) {
+        content = null;
+        super.setBody(contents);
+    }
+
+    @Override
+    public void setBody(String contents) {
+        content = null;
+        super.setBody(contents);
+    }
+
+    @Override
+    public void append(byte[] contents) {
+        copyContent();
+        super.append(contents);
+    }
+
+    @Override
+    public void append(byte[] contents, int length) {
+        copyContent();
+        super.append(contents, length);
+    }
+
+    @Override
+    public void append(String contents) {
+        copyContent();
+        super.append(contents);
+    }
+
+    @Override
+    public void setLength(int length) {
+        copyContent();
+        super.setLength(length);
+    }
+
+    @Override
+    public String toString() {
+        copyContent();
+        return super.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        copyContent();
+        return super.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        copyContent();
+        return super.equals(obj);
+    }
+
+    private void copyContent() {
+        if (content != null) {
+            byte[] contents = content;
+            content = null;
+            super.setBody(contents);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * The map locals when running without a view, for example, in daemon mode. With a view they are
+ * held by the table model of the status panel.
+ *
+ * <p>The listener is notified with the enabled map locals once per change, in the order they were
+ * added or enabled, the same as the table model (an edited map local goes after the others).
+ */
+public class MapLocalRuleStore {
+
+    private final List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+    private final List<MapLocalTableEntry> mapLocalsEnabled = new ArrayList<>();
+    private final Consumer<List<MapLocalTableEntry>> enabledMapLocalsListener;
+
+    public MapLocalRuleStore(Consumer<List<MapLocalTableEntry>> enabledMapLocalsListener) {
+        this.enabledMapLocalsListener = enabledMapLocalsListener;
+    }
+
+    /**
+     * Gets the map locals, in the order they were added.
+     *
+     * @return a new list with the map locals.
+     */
+    public synchronized List<MapLocalTableEntry> getMapLocals() {
+        return new ArrayList<>(mapLocals);
+    }
+
+    public synchronized void addMapLocal(MapLocalTableEntry mapLocal) {
+        mapLocals.add(mapLocal);
+        if (mapLocal.isEnabled()) {
+            mapLocalsEnabled.add(mapLocal);
+            notifyEnabledMapLocalsChanged();
+        }
+    }
+
+    public synchronized void addMapLocals(Collection<MapLocalTableEntry> newMapLocals) {
+        boolean anyEnabled = false;
+        for (MapLocalTableEntry mapLocal : newMapLocals) {
+            mapLocals.add(mapLocal);
+            if (mapLocal.isEnabled()) {
+                mapLocalsEnabled.add(mapLocal);
+                anyEnabled = true;
+            }
+        }
+        if (anyEnabled) {
+            notifyEnabledMapLocalsChanged();
+        }
+    }
+
+    /**
+     * Replaces the given map local, the new one goes after the others, as in the table model.
+     *
+     * @param oldMapLocal the map local to replace.
+     * @param newMapLocal the new map local.
+     */
+    public synchronized void editMapLocal(
+            MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
+        removeByIdentity(mapLocals, oldMapLocal);
+        mapLocals.add(newMapLocal);
+        removeByIdentity(mapLocalsEnabled, oldMapLocal);
+        if (newMapLocal.isEnabled()) {
+            mapLocalsEnabled.add(newMapLocal);
+        }
+        notifyEnabledMapLocalsChanged();
+    }
+
+    public synchronized void removeMapLocal(MapLocalTableEntry mapLocal) {
+        if (removeByIdentity(mapLocals, mapLocal) && removeByIdentity(mapLocalsEnabled, mapLocal)) {
+            notifyEnabledMapLocalsChanged();
+        }
+    }
+
+    public synchronized void removeMapLocals(Collection<MapLocalTableEntry> oldMapLocals) {
+        Map<MapLocalTableEntry, Boolean> removed = new IdentityHashMap<>();
+        for (MapLocalTableEntry mapLocal : oldMapLocals) {
+            removed.put(mapLocal, Boolean.TRUE);
+        }
+        mapLocals.removeIf(removed::containsKey);
+        if (mapLocalsEnabled.removeIf(removed::containsKey)) {
+            notifyEnabledMapLocalsChanged();
+        }
+    }
+
+    /**
+     * Enables or disables the given map locals.
+     *
+     * @param changedMapLocals the map locals to change.
+     * @param enabled {@code true} to enable, {@code false} to disable.
+     */
+    public synchronized void setEnabled(
+            Collection<MapLocalTableEntry> changedMapLocals, boolean enabled) {
+        boolean changed = false;
+        for (MapLocalTableEntry mapLocal : changedMapLocals) {
+            if (mapLocal.isEnabled() != enabled) {
+                mapLocal.setEnabled(enabled);
+                // A map local enabled again goes after the others
+                removeByIdentity(mapLocalsEnabled, mapLocal);
+                if (enabled) {
+                    mapLocalsEnabled.add(mapLocal);
+                }
+                changed = true;
+            }
+        }
+        if (changed) {
+            notifyEnabledMapLocalsChanged();
+        }
+    }
+
+    public synchronized void clear() {
+        mapLocals.clear();
+        mapLocalsEnabled.clear();
+        notifyEnabledMapLocalsChanged();
+    }
+
+    private static boolean removeByIdentity(
+            List<MapLocalTableEntry> list, MapLocalTableEntry mapLocal) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == mapLocal) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void notifyEnabledMapLocalsChanged() {
+        enabledMapLocalsListener.accept(new ArrayList<>(mapLocalsEnabled));
+    }
+}
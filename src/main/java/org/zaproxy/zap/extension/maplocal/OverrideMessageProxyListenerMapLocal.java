@@ -0,0 +1,51 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import org.parosproxy.paros.core.proxy.OverrideMessageProxyListener;
+import org.parosproxy.paros.network.HttpMessage;
+
+/**
+ * Answers the requests of the map locals served without contacting the server, the other map
+ * locals are handled by {@link ProxyListenerMapLocal}.
+ */
+public class OverrideMessageProxyListenerMapLocal implements OverrideMessageProxyListener {
+
+    private final ExtensionMapLocal extension;
+
+    public OverrideMessageProxyListenerMapLocal(ExtensionMapLocal extension) {
+        this.extension = extension;
+    }
+
+    @Override
+    public boolean onHttpRequestSend(HttpMessage msg) {
+        return extension.serveLocally(msg);
+    }
+
+    @Override
+    public boolean onHttpResponseReceived(HttpMessage msg) {
+        return false;
+    }
+
+    @Override
+    public int getArrangeableListenerOrder() {
+        return ProxyListenerMapLocal.PROXY_LISTENER_ORDER;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/** The byte ranges of a Range request header, resolved against the size of the file. */
+public final class MapLocalByteRanges {
+
+    public static final String RANGE = "Range";
+
+    /** The maximum number of ranges, requests with more are served in full. */
+    private static final int MAX_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private static final long INVALID = -2;
+
+    private final long[] starts;
+    private final long[] ends;
+
+    private MapLocalByteRanges(long[] starts, long[] ends) {
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Parses the given Range header.
+     *
+     * <p>The ranges are sorted and the overlapping or adjacent ones merged, so that no byte is
+     * sent more than once. The header is ignored if its ranges add up to more than the file, it
+     * is cheaper to send the whole file.
+     *
+     * @param range the value of the header.
+     * @param size the size of the file.
+     * @return the ranges, empty if none is satisfiable, or {@code null} if the header is not valid,
+     *     has too many ranges or ranges larger than the file, in which case it should be ignored.
+     */
+    public static MapLocalByteRanges parse(String range, long size) {
+        if (range == null || !range.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        String[] specs = range.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String trimmed = spec.trim();
+            int dashIdx = trimmed.indexOf('-');
+            if (dashIdx == -1) {
+                return null;
+            }
+            long first = parseLong(trimmed.substring(0, dashIdx));
+            long last = parseLong(trimmed.substring(dashIdx + 1));
+            if (first == INVALID || last == INVALID) {
+                return null;
+            }
+            if (first == -1) {
+                // Suffix range, the last bytes
+                if (last == -1) {
+                    return null;
+                }
+                if (last > 0 && size > 0) {
+                    ranges.add(new long[] {Math.max(0, size - last), size - 1});
+                }
+                continue;
+            }
+            if (last != -1 && last < first) {
+                return null;
+            }
+            if (first < size) {
+                ranges.add(new long[] {first, last == -1 ? size - 1 : Math.min(last, size - 1)});
+            }
+        }
+        return merge(ranges, size);
+    }
+
+    private static MapLocalByteRanges merge(List<long[]> ranges, long size) {
+        long requested = 0;
+        for (long[] range : ranges) {
+            requested += range[1] - range[0] + 1;
+        }
+        if (requested > size) {
+            return null;
+        }
+
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        long[] starts = new long[ranges.size()];
+        long[] ends = new long[ranges.size()];
+        int count = 0;
+        for (long[] range : ranges) {
+            if (count > 0 && range[0] <= ends[count - 1] + 1) {
+                ends[count - 1] = Math.max(ends[count - 1], range[1]);
+            } else {
+                starts[count] = range[0];
+                ends[count] = range[1];
+                count++;
+            }
+        }
+        return new MapLocalByteRanges(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    /** Parses the non-negative number, -1 if empty or {@link #INVALID} if not valid. */
+    private static long parseLong(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return -1;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+        }
+        try {
+            return Long.parseLong(trimmed);
+        } catch (NumberFormatException e) {
+            return INVALID;
+        }
+    }
+
+    public boolean isEmpty() {
+        return starts.length == 0;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Gets the first byte of the given range.
+     *
+     * @param index the index of the range.
+     * @return the position of the byte.
+     */
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * Gets the number of bytes of the given range.
+     *
+     * @param index the index of the range.
+     * @return the number of bytes.
+     */
+    public long getLength(int index) {
+        return ends[index] - starts[index] + 1;
+    }
+
+    /**
+     * Gets the total number of bytes of the ranges.
+     *
+     * @return the number of bytes.
+     */
+    public long getTotalLength() {
+        long total = 0;
+        for (int i = 0; i < starts.length; i++) {
+            total += getLength(i);
+        }
+        return total;
+    }
+
+    /**
+     * Creates the value of the Content-Range header for the given range.
+     *
+     * @param index the index of the range.
+     * @param size the size of the file.
+     * @return the value of the header.
+     */
+    public String getContentRange(int index, long size) {
+        return String.format(Locale.ROOT, "bytes %d-%d/%d", starts[index], ends[index], size);
+    }
+
+    /**
+     * Creates the value of the Content-Range header for unsatisfiable ranges.
+     *
+     * @param size the size of the file.
+     * @return the value of the header.
+     */
+    public static String getUnsatisfiedContentRange(long size) {
+        return "bytes */" + size;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import org.parosproxy.paros.network.HttpRequestHeader;
+
+/**
+ * Helpers for conditional requests (If-None-Match, If-Modified-Since and If-Range) to the mapped
+ * files.
+ *
+ * <p>The entity tag is strong, the hash of the content, if known, that is, the file is cached or
+ * was already read with the same size and last modified time (see {@link
+ * MapLocalContentCache#getValidator(java.nio.file.Path, long)}), otherwise weak, the size and the
+ * last modified time. It includes the content coding, each coding is a different representation.
+ */
+public final class MapLocalConditionalRequest {
+
+    public static final String ETAG = "ETag";
+    public static final String LAST_MODIFIED = "Last-Modified";
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String IF_RANGE = "If-Range";
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH)
+                    .withZone(ZoneOffset.UTC);
+
+    private MapLocalConditionalRequest() {}
+
+    /**
+     * Creates the entity tag for the given validator and content coding.
+     *
+     * @param validator the validator of the file.
+     * @param contentCoding the content coding, {@code null} if none.
+     * @return the entity tag, quoted.
+     */
+    public static String createETag(
+            MapLocalContentCache.Validator validator, String contentCoding) {
+        String suffix = contentCoding == null ? "" : "-" + contentCoding;
+        if (validator.getHash() != null) {
+            return '"' + validator.getHash() + suffix + '"';
+        }
+        return "W/\""
+                + Long.toHexString(validator.getSize())
+                + '-'
+                + Long.toHexString(validator.getLastModified())
+                + suffix
+                + '"';
+    }
+
+    /**
+     * Formats the given time as an HTTP date.
+     *
+     * @param millis the time, in milliseconds since the epoch.
+     * @return the date.
+     */
+    public static String formatHttpDate(long millis) {
+        return HTTP_DATE.format(Instant.ofEpochMilli(millis));
+    }
+
+    /**
+     * Tells whether or not the client already has the representation, per the conditional headers
+     * of the request. If-None-Match takes precedence over If-Modified-Since, both are only
+     * evaluated for GET and HEAD requests.
+     *
+     * @param request the request header.
+     * @param etag the entity tag of the representation.
+     * @param lastModified the last modified time of the file, in milliseconds since the epoch.
+     * @return {@code true} if not modified, {@code false} otherwise.
+     */
+    public static boolean isNotModified(HttpRequestHeader request, String etag, long lastModified) {
+        String method = request.getMethod();
+        if (!HttpRequestHeader.GET.equals(method) && !HttpRequestHeader.HEAD.equals(method)) {
+            return false;
+        }
+
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, etag);
+        }
+
+        String ifModifiedSince = request.getHeader(IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime since =
+                    ZonedDateTime.parse(
+                            ifModifiedSince.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            // The dates have a resolution of seconds
+            return lastModified / 1000 <= since.toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tells whether or not the Range header of the request applies, that is, the request has no
+     * If-Range or it matches the representation, with strong comparison for the entity tag.
+     *
+     * @param request the request header.
+     * @param etag the entity tag of the representation.
+     * @param lastModified the last modified time of the file, in milliseconds since the epoch.
+     * @return {@code true} if the ranges should be sent, {@code false} if the whole content.
+     */
+    public static boolean isRangeApplicable(
+            HttpRequestHeader request, String etag, long lastModified) {
+        String ifRange = request.getHeader(IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        String trimmed = ifRange.trim();
+        if (trimmed.startsWith("\"")) {
+            return !etag.startsWith("W/") && etag.equals(trimmed);
+        }
+        if (trimmed.startsWith("W/")) {
+            return false;
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return lastModified / 1000 == date.toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /** Tells whether or not any of the entity tags matches, with weak comparison. */
+    private static boolean matchesAny(String etags, String etag) {
+        String opaque = stripWeak(etag);
+        for (String candidate : etags.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || opaque.equals(stripWeak(trimmed))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
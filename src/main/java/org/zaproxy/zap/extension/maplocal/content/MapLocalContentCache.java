@@ -0,0 +1,548 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A cache of the content of the mapped local files, bounded by size in bytes.
+ *
+ * <p>The entries are validated against the size and last modified time of the file, unless the
+ * file is watched for changes (see {@link MapLocalFileWatcher}), and evicted in least recently
+ * used order once the size is exceeded. Hits do not lock, only the eviction does. The content
+ * compressed with gzip, once requested, is kept (and counted) with the content.
+ *
+ * <p>The Content-Type inferred for each file (see {@link MapLocalContentType}) and the hash of its
+ * content are kept with the content, or, for the files not cached, with their size and last
+ * modified time, without the content. The hash of those files is known once they are read.
+ */
+public class MapLocalContentCache {
+
+    private static final long MIB = 1024L * 1024L;
+
+    /** The number of bytes of the SHA-256 digest used in the hash of the content. */
+    private static final int HASH_LENGTH = 16;
+
+    /** The maximum number of infos of the files not cached, cleared once exceeded. */
+    private static final int MAX_FILE_INFOS = 10000;
+
+    private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Path, FileInfo> fileInfos = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong accessClock = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    private volatile long maxSize;
+    private volatile Predicate<Path> watched = path -> false;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs a {@code MapLocalContentCache} with the given maximum size.
+     *
+     * @param maxSizeMib the maximum size, in MiB. Zero disables the cache.
+     */
+    public MapLocalContentCache(int maxSizeMib) {
+        setMaxSize(maxSizeMib);
+    }
+
+    /**
+     * Sets the maximum size, evicting entries if needed.
+     *
+     * @param maxSizeMib the maximum size, in MiB. Zero disables the cache.
+     */
+    public void setMaxSize(int maxSizeMib) {
+        maxSize = Math.max(0, maxSizeMib) * MIB;
+        evict();
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the predicate that tells if a file is watched for changes, the entries of those files
+     * are not validated against the file attributes, they are expected to be invalidated or
+     * reloaded on change.
+     *
+     * @param watched the predicate, called with absolute paths.
+     */
+    public void setWatched(Predicate<Path> watched) {
+        this.watched = watched;
+    }
+
+    /**
+     * Gets the content of the given file, from the cache if still valid.
+     *
+     * <p>The returned array is shared, it must not be modified.
+     *
+     * @param path the path to the file.
+     * @return the content of the file.
+     * @throws IOException if an error occurred while reading the file.
+     */
+    public byte[] getContent(Path path) throws IOException {
+        return getContent(path, Long.MAX_VALUE);
+    }
+
+    /**
+     * Gets the content of the given file, from the cache if still valid, unless the file is
+     * larger than the given size.
+     *
+     * <p>The returned array is shared, it must not be modified.
+     *
+     * @param path the path to the file.
+     * @param maxFileSize the maximum size of the file to read, in bytes.
+     * @return the content of the file, or {@code null} if larger than the given size.
+     * @throws IOException if an error occurred while reading the file.
+     */
+    public byte[] getContent(Path path, long maxFileSize) throws IOException {
+        Path key = path.toAbsolutePath();
+        Entry entry = entries.get(key);
+        if (entry != null && watched.test(key)) {
+            return hit(entry);
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        if (entry != null && entry.isValid(attributes)) {
+            return hit(entry);
+        }
+        if (attributes.size() > maxFileSize) {
+            if (entry != null) {
+                remove(key);
+            }
+            return null;
+        }
+        misses.increment();
+        return load(key, attributes, entry);
+    }
+
+    /**
+     * Gets the given content of the file compressed with gzip, compressed once and cached with the
+     * content, if it is the content cached.
+     *
+     * <p>The returned array is shared, it must not be modified.
+     *
+     * @param path the path to the file.
+     * @param content the content of the file.
+     * @return the compressed content.
+     * @throws IOException if an error occurred while compressing the content.
+     */
+    public byte[] getGzipContent(Path path, byte[] content) throws IOException {
+        Path key = path.toAbsolutePath();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.content == content && entry.gzipContent != null) {
+            return entry.gzipContent;
+        }
+
+        byte[] gzipContent = gzip(content);
+        if (entry != null && entry.content == content) {
+            Entry compressed = entry.withGzipContent(gzipContent);
+            if (entries.replace(key, entry, compressed)) {
+                size.addAndGet(gzipContent.length);
+                evict();
+            }
+        }
+        return gzipContent;
+    }
+
+    /**
+     * Gets the validator of the given file, without reading it.
+     *
+     * <p>If the file is cached (and not larger than the given size) the validator has its content
+     * and the hash of the content. Otherwise it has the hash only if the file was read with the
+     * same size and last modified time, and no content. The validator also has the inferred
+     * Content-Type of the file.
+     *
+     * @param path the path to the file.
+     * @param maxFileSize the maximum size of the file to use the cached content, in bytes.
+     * @return the validator, never {@code null}.
+     * @throws IOException if an error occurred while reading the attributes of the file.
+     */
+    public Validator getValidator(Path path, long maxFileSize) throws IOException {
+        Path key = path.toAbsolutePath();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.content.length <= maxFileSize && watched.test(key)) {
+            return createValidator(entry);
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        if (entry != null) {
+            if (entry.content.length <= maxFileSize && entry.isValid(attributes)) {
+                return createValidator(entry);
+            }
+            remove(key);
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        FileInfo info = getFileInfo(key, attributes.size(), lastModified);
+        return new Validator(attributes.size(), lastModified, info.hash, info.contentType, null);
+    }
+
+    private Validator createValidator(Entry entry) {
+        return new Validator(
+                entry.content.length,
+                entry.lastModified,
+                entry.hash,
+                entry.contentType,
+                hit(entry));
+    }
+
+    private static String inferContentType(Path path, byte[] content) {
+        return MapLocalContentType.infer(
+                path, content, Math.min(content.length, MapLocalContentType.SNIFF_LENGTH));
+    }
+
+    /** Gets the info of a file not cached, with its content type sniffed from its first bytes. */
+    private FileInfo getFileInfo(Path key, long fileSize, long lastModified) throws IOException {
+        FileInfo cached = fileInfos.get(key);
+        if (cached != null && cached.isValid(fileSize, lastModified)) {
+            return cached;
+        }
+
+        ByteBuffer head = ByteBuffer.allocate(MapLocalContentType.SNIFF_LENGTH);
+        try (FileChannel channel = FileChannel.open(key, StandardOpenOption.READ)) {
+            while (head.hasRemaining() && channel.read(head) != -1) {
+                // Read until full or end of file
+            }
+        }
+        FileInfo info =
+                new FileInfo(
+                        fileSize,
+                        lastModified,
+                        MapLocalContentType.infer(key, head.array(), head.position()),
+                        null);
+        putFileInfo(key, info);
+        return info;
+    }
+
+    private void putFileInfo(Path key, FileInfo info) {
+        if (fileInfos.size() >= MAX_FILE_INFOS) {
+            fileInfos.clear();
+        }
+        fileInfos.put(key, info);
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hash = new StringBuilder(HASH_LENGTH * 2);
+            for (int i = 0; i < HASH_LENGTH; i++) {
+                hash.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                        .append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Always available
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream(content.length / 2 + 32);
+        try (GZIPOutputStream gzos = new GZIPOutputStream(os)) {
+            gzos.write(content);
+        }
+        return os.toByteArray();
+    }
+
+    private byte[] hit(Entry entry) {
+        entry.lastAccess = accessClock.incrementAndGet();
+        hits.increment();
+        return entry.content;
+    }
+
+    private byte[] load(Path key, BasicFileAttributes attributes, Entry entry) throws IOException {
+        byte[] content = Files.readAllBytes(key);
+        long fileSize = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (content.length == fileSize && fileSize <= maxSize) {
+            put(
+                    key,
+                    new Entry(
+                            content,
+                            hash(content),
+                            inferContentType(key, content),
+                            lastModified,
+                            accessClock.incrementAndGet()));
+            return content;
+        }
+
+        if (entry != null) {
+            remove(key);
+        }
+        if (content.length == fileSize) {
+            // Not cached, keep the hash for the validators
+            FileInfo info = fileInfos.get(key);
+            if (info == null || !info.isValid(fileSize, lastModified) || info.hash == null) {
+                putFileInfo(
+                        key,
+                        new FileInfo(
+                                fileSize,
+                                lastModified,
+                                inferContentType(key, content),
+                                hash(content)));
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Reloads the content of the given file, if cached. The entry is removed if the file can no
+     * longer be read.
+     *
+     * @param path the path to the file.
+     */
+    public void reload(Path path) {
+        Path key = path.toAbsolutePath();
+        fileInfos.remove(key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return;
+        }
+        try {
+            load(key, Files.readAttributes(key, BasicFileAttributes.class), entry);
+        } catch (IOException e) {
+            remove(key);
+        }
+    }
+
+    private void put(Path path, Entry entry) {
+        Entry previous = entries.put(path, entry);
+        size.addAndGet(entry.getSize() - (previous != null ? previous.getSize() : 0));
+        evict();
+    }
+
+    /**
+     * Removes the entry of the given file, if any.
+     *
+     * @param path the path to the file.
+     */
+    public void remove(Path path) {
+        Path key = path.toAbsolutePath();
+        fileInfos.remove(key);
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            size.addAndGet(-previous.getSize());
+        }
+    }
+
+    public void clear() {
+        synchronized (evictionLock) {
+            for (Path path : new ArrayList<>(entries.keySet())) {
+                remove(path);
+            }
+            fileInfos.clear();
+        }
+    }
+
+    private void evict() {
+        if (size.get() <= maxSize) {
+            return;
+        }
+        synchronized (evictionLock) {
+            if (size.get() <= maxSize) {
+                return;
+            }
+            List<Map.Entry<Path, Entry>> candidates = new ArrayList<>(entries.entrySet());
+            candidates.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Path, Entry> candidate : candidates) {
+                if (size.get() <= maxSize) {
+                    break;
+                }
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    size.addAndGet(-candidate.getValue().getSize());
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the current size of the cache.
+     *
+     * @return the size, in bytes.
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+
+    /** The values used to tell if the content of a file changed, for conditional requests. */
+    public static class Validator {
+
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final String contentType;
+        private final byte[] content;
+
+        Validator(long size, long lastModified, String hash, String contentType, byte[] content) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the last modified time of the file.
+         *
+         * @return the time, in milliseconds since the epoch.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Gets the hash of the content.
+         *
+         * @return the hash, {@code null} if the file was not read with the current size and last
+         *     modified time.
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Gets the Content-Type inferred for the file.
+         *
+         * @return the Content-Type, never {@code null}.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Gets the cached content of the file.
+         *
+         * <p>The returned array is shared, it must not be modified.
+         *
+         * @return the content, {@code null} if the file is not cached.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+    }
+
+    /** The content type and hash of a file not cached, with the attributes they are for. */
+    private static class FileInfo {
+
+        private final long size;
+        private final long lastModified;
+        private final String contentType;
+        private final String hash;
+
+        FileInfo(long size, long lastModified, String contentType, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.hash = hash;
+        }
+
+        boolean isValid(long fileSize, long fileLastModified) {
+            return size == fileSize && lastModified == fileLastModified;
+        }
+    }
+
+    private static class Entry {
+
+        private final byte[] content;
+        private final String hash;
+        private final String contentType;
+        private final byte[] gzipContent;
+        private final long lastModified;
+        private volatile long lastAccess;
+
+        Entry(
+                byte[] content,
+                String hash,
+                String contentType,
+                long lastModified,
+                long lastAccess) {
+            this(content, hash, contentType, null, lastModified, lastAccess);
+        }
+
+        private Entry(
+                byte[] content,
+                String hash,
+                String contentType,
+                byte[] gzipContent,
+                long lastModified,
+                long lastAccess) {
+            this.content = content;
+            this.hash = hash;
+            this.contentType = contentType;
+            this.gzipContent = gzipContent;
+            this.lastModified = lastModified;
+            this.lastAccess = lastAccess;
+        }
+
+        Entry withGzipContent(byte[] gzipContent) {
+            return new Entry(content, hash, contentType, gzipContent, lastModified, lastAccess);
+        }
+
+        long getSize() {
+            return content.length + (gzipContent != null ? gzipContent.length : 0L);
+        }
+
+        boolean isValid(BasicFileAttributes attributes) {
+            return content.length == attributes.size()
+                    && lastModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Helpers to choose the content coding of the responses, from the request's Accept-Encoding. */
+public final class MapLocalContentCoding {
+
+    public static final String GZIP = "gzip";
+    public static final String BROTLI = "br";
+
+    private static final String IDENTITY = "identity";
+
+    private MapLocalContentCoding() {}
+
+    /**
+     * Tells whether or not the given content coding is acceptable, that is, listed (or matched by
+     * {@code *}) with a non-zero quality.
+     *
+     * @param acceptEncoding the value of the Accept-Encoding header, might be {@code null}.
+     * @param coding the content coding, in lower case.
+     * @return {@code true} if acceptable, {@code false} otherwise.
+     */
+    public static boolean isAccepted(String acceptEncoding, String coding) {
+        return getQuality(acceptEncoding, coding) > 0;
+    }
+
+    /**
+     * Gets the acceptable content codings, of the given ones, in order of preference.
+     *
+     * <p>The codings with the highest quality come first, in the given order if the same quality.
+     * The codings with a quality lower than the one of {@code identity}, if listed (or matched by
+     * {@code *}), are not included, no coding is preferred.
+     *
+     * @param acceptEncoding the value of the Accept-Encoding header, might be {@code null}.
+     * @param codings the content codings, in lower case, in order of preference for the same
+     *     quality.
+     * @return the acceptable content codings, might be empty.
+     */
+    public static List<String> getAccepted(String acceptEncoding, String... codings) {
+        double identity = getQuality(acceptEncoding, IDENTITY);
+        List<String> accepted = new ArrayList<>(codings.length);
+        double[] qualities = new double[codings.length];
+        for (String coding : codings) {
+            double quality = getQuality(acceptEncoding, coding);
+            if (quality > 0 && quality >= identity) {
+                // Insertion sort, stable, there are just a few
+                int i = accepted.size();
+                while (i > 0 && qualities[i - 1] < quality) {
+                    qualities[i] = qualities[i - 1];
+                    i--;
+                }
+                qualities[i] = quality;
+                accepted.add(i, coding);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Gets the quality of the given content coding.
+     *
+     * @return the quality, or {@code -1} if not listed nor matched by {@code *}.
+     */
+    private static double getQuality(String acceptEncoding, String coding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return -1;
+        }
+        double wildcard = -1;
+        for (String element : acceptEncoding.split(",")) {
+            int paramsIdx = element.indexOf(';');
+            String name =
+                    (paramsIdx == -1 ? element : element.substring(0, paramsIdx))
+                            .trim()
+                            .toLowerCase(Locale.ROOT);
+            double quality = paramsIdx == -1 ? 1 : getQuality(element.substring(paramsIdx));
+            if (name.equals(coding) || ("x-gzip".equals(name) && GZIP.equals(coding))) {
+                // Explicit, takes precedence over the wildcard
+                return quality;
+            }
+            if ("*".equals(name)) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double getQuality(String params) {
+        for (String param : params.split(";")) {
+            String trimmed = param.trim();
+            if (trimmed.length() > 2 && (trimmed.startsWith("q=") || trimmed.startsWith("Q="))) {
+                try {
+                    return Double.parseDouble(trimmed.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Tells whether or not it is worth compressing the content of the given type, that is, it is
+     * text based.
+     *
+     * @param contentType the content type, might be {@code null}.
+     * @return {@code true} if compressible, {@code false} otherwise.
+     */
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.contains("javascript")
+                || type.contains("json")
+                || type.contains("xml")
+                || type.startsWith("image/svg")
+                || type.startsWith("application/wasm");
+    }
+}
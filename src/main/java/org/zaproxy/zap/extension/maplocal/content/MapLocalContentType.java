@@ -0,0 +1,235 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Infers the Content-Type of the mapped local files, from the extension of the file name or, if
+ * not known, from the first bytes of the content (sniffing).
+ */
+public final class MapLocalContentType {
+
+    /** The number of bytes used to sniff the content type. */
+    public static final int SNIFF_LENGTH = 512;
+
+    private static final String OCTET_STREAM = "application/octet-stream";
+
+    private static final Pattern VALID =
+            Pattern.compile(
+                    "[\\w!#$%&'*+.^`|~-]+/[\\w!#$%&'*+.^`|~-]+(\\s*;[^\\x00-\\x1f\\x7f]*)?");
+
+    private static final Map<String, String> EXTENSIONS =
+            Map.ofEntries(
+                    Map.entry("html", "text/html"),
+                    Map.entry("htm", "text/html"),
+                    Map.entry("css", "text/css"),
+                    Map.entry("js", "text/javascript"),
+                    Map.entry("mjs", "text/javascript"),
+                    Map.entry("json", "application/json"),
+                    Map.entry("map", "application/json"),
+                    Map.entry("xml", "application/xml"),
+                    Map.entry("txt", "text/plain"),
+                    Map.entry("csv", "text/csv"),
+                    Map.entry("md", "text/markdown"),
+                    Map.entry("svg", "image/svg+xml"),
+                    Map.entry("png", "image/png"),
+                    Map.entry("jpg", "image/jpeg"),
+                    Map.entry("jpeg", "image/jpeg"),
+                    Map.entry("gif", "image/gif"),
+                    Map.entry("webp", "image/webp"),
+                    Map.entry("avif", "image/avif"),
+                    Map.entry("ico", "image/x-icon"),
+                    Map.entry("woff", "font/woff"),
+                    Map.entry("woff2", "font/woff2"),
+                    Map.entry("ttf", "font/ttf"),
+                    Map.entry("otf", "font/otf"),
+                    Map.entry("wasm", "application/wasm"),
+                    Map.entry("pdf", "application/pdf"),
+                    Map.entry("zip", "application/zip"),
+                    Map.entry("gz", "application/gzip"),
+                    Map.entry("mp4", "video/mp4"),
+                    Map.entry("webm", "video/webm"),
+                    Map.entry("mp3", "audio/mpeg"),
+                    Map.entry("wav", "audio/wav"));
+
+    private MapLocalContentType() {}
+
+    /**
+     * Tells whether or not the given value is a valid Content-Type, a type and subtype with
+     * optional parameters, without control characters.
+     *
+     * @param contentType the value to check.
+     * @return {@code true} if valid, {@code false} otherwise.
+     */
+    public static boolean isValid(String contentType) {
+        return contentType != null && VALID.matcher(contentType.trim()).matches();
+    }
+
+    /**
+     * Infers the Content-Type of the given file, from the extension of its name (or as probed by
+     * the platform) or, if not known, from its first bytes.
+     *
+     * @param path the path to the file.
+     * @param head the first bytes of the file, up to {@link #SNIFF_LENGTH}.
+     * @param length the number of bytes in {@code head}.
+     * @return the Content-Type, never {@code null}.
+     */
+    public static String infer(Path path, byte[] head, int length) {
+        String contentType = fromExtension(path);
+        return contentType != null ? contentType : sniff(head, length);
+    }
+
+    private static String fromExtension(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+            return null;
+        }
+        String name = fileName.toString();
+        int dotIdx = name.lastIndexOf('.');
+        if (dotIdx != -1) {
+            String contentType =
+                    EXTENSIONS.get(name.substring(dotIdx + 1).toLowerCase(Locale.ROOT));
+            if (contentType != null) {
+                return contentType;
+            }
+        }
+        try {
+            return Files.probeContentType(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Sniffs the content type from the magic numbers or, if text, from the leading markup. */
+    static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 'R', 'I', 'F', 'F')
+                && length >= 12
+                && head[8] == 'W'
+                && head[9] == 'E'
+                && head[10] == 'B'
+                && head[11] == 'P') {
+            return "image/webp";
+        }
+        if (startsWith(head, length, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        if (startsWith(head, length, 'P', 'K', 3, 4)) {
+            return "application/zip";
+        }
+        if (startsWith(head, length, 0x1F, 0x8B)) {
+            return "application/gzip";
+        }
+        if (startsWith(head, length, 'w', 'O', 'F', '2')) {
+            return "font/woff2";
+        }
+        if (startsWith(head, length, 'w', 'O', 'F', 'F')) {
+            return "font/woff";
+        }
+        if (startsWith(head, length, 0, 'a', 's', 'm')) {
+            return "application/wasm";
+        }
+        if (!isText(head, length)) {
+            return OCTET_STREAM;
+        }
+
+        String text =
+                new String(head, 0, length, StandardCharsets.UTF_8)
+                        .stripLeading()
+                        .toLowerCase(Locale.ROOT);
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1).stripLeading();
+        }
+        if (text.startsWith("<!doctype html")
+                || text.startsWith("<html")
+                || text.startsWith("<head")
+                || text.startsWith("<body")) {
+            return "text/html";
+        }
+        if (text.startsWith("<svg")) {
+            return "image/svg+xml";
+        }
+        if (text.startsWith("<?xml")) {
+            return text.contains("<svg") ? "image/svg+xml" : "application/xml";
+        }
+        if (text.startsWith("{") || text.startsWith("[")) {
+            return "application/json";
+        }
+        return "text/plain";
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... magic) {
+        if (length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Tells whether or not the bytes are UTF-8 text, without binary control characters. */
+    private static boolean isText(byte[] head, int length) {
+        for (int i = 0; i < length; i++) {
+            int b = head[i] & 0xFF;
+            if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') {
+                return false;
+            }
+        }
+        // The last character might have been cut
+        int end = length;
+        for (int i = 1; i <= 3 && end > 0 && (head[end - 1] & 0xC0) == 0x80; i++) {
+            end--;
+        }
+        if (end > 0 && (head[end - 1] & 0xC0) == 0xC0) {
+            end--;
+        }
+        try {
+            StandardCharsets.UTF_8
+                    .newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(head, 0, end));
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+}
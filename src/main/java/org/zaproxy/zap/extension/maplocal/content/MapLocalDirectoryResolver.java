@@ -0,0 +1,234 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Resolves the files of directory mappings, a URL prefix mapped to a local directory.
+ *
+ * <p>The path segments after the prefix are decoded and each must be the name of an entry of the
+ * directory, so that they can not escape it (no {@code ..}, separators, or other path syntax). A
+ * directory resolves to its index file, if any. Symbolic links are followed only if the file they
+ * resolve to is in the mapped directory. The listings of the directories are cached and validated
+ * against the last modified time of the directory, which changes when entries are added or
+ * removed. Whether or not the mapped paths are directories is cached until {@link #clear()
+ * cleared}.
+ */
+public class MapLocalDirectoryResolver {
+
+    private static final Logger LOGGER = LogManager.getLogger(MapLocalDirectoryResolver.class);
+
+    /** The maximum number of listings kept, all are discarded once exceeded. */
+    private static final int MAX_LISTINGS = 4096;
+
+    private final Map<Path, Listing> listings = new ConcurrentHashMap<>();
+    private final Map<Path, Boolean> directories = new ConcurrentHashMap<>();
+
+    /**
+     * Tells whether or not the given path is a directory, that is, a directory mapping.
+     *
+     * <p>The result is cached until {@link #clear() cleared}.
+     *
+     * @param path the local path of the map local.
+     * @return {@code true} if a directory, {@code false} otherwise.
+     */
+    public boolean isDirectory(Path path) {
+        Boolean directory = directories.get(path);
+        if (directory == null) {
+            directory = Files.isDirectory(path);
+            if (directories.size() >= MAX_LISTINGS) {
+                directories.clear();
+            }
+            directories.put(path, directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Resolves the file for the given path segments.
+     *
+     * @param directory the mapped directory.
+     * @param segments the (escaped) path segments of the URI.
+     * @param from the index of the first segment after the URL prefix.
+     * @param indexFile the name of the file served for directories, empty if none.
+     * @return the file, or {@code null} if none or the segments are not valid.
+     */
+    public Path resolve(Path directory, String[] segments, int from, String indexFile) {
+        Path current = directory;
+        Listing listing = getListing(current);
+        if (listing == null) {
+            return null;
+        }
+        Path realDirectory = listing.realPath;
+        for (int i = from; i < segments.length; i++) {
+            String name = decode(segments[i]);
+            if (listing == null || !isValidName(name) || !listing.names.contains(name)) {
+                return null;
+            }
+            current = current.resolve(name);
+            listing = getListing(current);
+        }
+
+        if (listing != null) {
+            if (indexFile.isEmpty() || !listing.names.contains(indexFile)) {
+                return null;
+            }
+            current = current.resolve(indexFile);
+        }
+        try {
+            if (!current.toRealPath().startsWith(realDirectory)) {
+                // A symbolic link to outside the directory
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return current;
+    }
+
+    /** Gets the listing of the given directory, {@code null} if not a directory. */
+    private Listing getListing(Path dir) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(dir, BasicFileAttributes.class);
+        } catch (IOException e) {
+            listings.remove(dir);
+            return null;
+        }
+        if (!attributes.isDirectory()) {
+            listings.remove(dir);
+            return null;
+        }
+
+        Listing listing = listings.get(dir);
+        if (listing != null && listing.lastModified.equals(attributes.lastModifiedTime())) {
+            return listing;
+        }
+
+        Set<String> names = new HashSet<>();
+        Path realPath;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                names.add(entry.getFileName().toString());
+            }
+            realPath = dir.toRealPath();
+        } catch (IOException e) {
+            LOGGER.warn(e.getMessage(), e);
+            return null;
+        }
+        listing = new Listing(attributes.lastModifiedTime(), realPath, names);
+        if (listings.size() >= MAX_LISTINGS) {
+            listings.clear();
+        }
+        listings.put(dir, listing);
+        return listing;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name == null || name.isEmpty() || ".".equals(name) || "..".equals(name)) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '/' || c == '\\' || c == ':' || c == '\0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Decodes the percent-encoded (UTF-8) segment, {@code null} if malformed. */
+    static String decode(String segment) {
+        if (segment.indexOf('%') == -1) {
+            return segment;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(segment.length());
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c != '%') {
+                if (c > 0x7F) {
+                    return null;
+                }
+                bytes.write(c);
+                continue;
+            }
+            if (i + 2 >= segment.length()) {
+                return null;
+            }
+            int high = Character.digit(segment.charAt(i + 1), 16);
+            int low = Character.digit(segment.charAt(i + 2), 16);
+            if (high == -1 || low == -1) {
+                return null;
+            }
+            bytes.write((high << 4) | low);
+            i += 2;
+        }
+        try {
+            return StandardCharsets.UTF_8
+                    .newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes.toByteArray()))
+                    .toString();
+        } catch (CharacterCodingException e) {
+            return null;
+        }
+    }
+
+    /** Discards the cached listings and whether or not the mapped paths are directories. */
+    public void clear() {
+        listings.clear();
+        directories.clear();
+    }
+
+    public int getListingCount() {
+        return listings.size();
+    }
+
+    private static class Listing {
+
+        private final FileTime lastModified;
+        private final Path realPath;
+        private final Set<String> names;
+
+        Listing(FileTime lastModified, Path realPath, Set<String> names) {
+            this.lastModified = lastModified;
+            this.realPath = realPath;
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Watches the directories of the mapped local files, to invalidate (or reload) the entries of the
+ * {@link MapLocalContentCache} when the files change.
+ *
+ * <p>The cache does not check the attributes of the watched files, other files in the same
+ * directories are still checked. Bursts of events are debounced, the changed files are handled
+ * once the directories are quiet, or at most half a second after the first event. The watched
+ * files are updated in the background.
+ */
+public class MapLocalFileWatcher {
+
+    private static final Logger LOGGER = LogManager.getLogger(MapLocalFileWatcher.class);
+
+    /** The time, in milliseconds, without events before handling the changes. */
+    private static final long DEBOUNCE_MS = 100;
+
+    /**
+     * The maximum time, in milliseconds, the changes are held after the first event, so that files
+     * written continuously do not hold them forever.
+     */
+    private static final long MAX_DEBOUNCE_MS = 500;
+
+    private final MapLocalContentCache contentCache;
+
+    /** The files whose directory is watched, written under the lock of {@link #keys}. */
+    private final Set<Path> watchedFiles = ConcurrentHashMap.newKeySet();
+
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private WatchService watchService;
+
+    private final AtomicReference<Collection<Path>> pendingFiles = new AtomicReference<>();
+    private ExecutorService updateExecutor;
+
+    public MapLocalFileWatcher(MapLocalContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
+
+    /**
+     * Tells whether or not the given file is watched.
+     *
+     * @param file the absolute path to the file.
+     * @return {@code true} if the changes to the file are being watched, {@code false} otherwise.
+     */
+    public boolean isWatched(Path file) {
+        return watchedFiles.contains(file);
+    }
+
+    /**
+     * Sets the files to watch, replacing the previous ones.
+     *
+     * <p>The directories no longer needed stop being watched. The files are watched in the
+     * background, if called again before that only the last files are watched.
+     *
+     * @param files the files to watch, not modified afterwards.
+     */
+    public void setWatchedFiles(Collection<Path> files) {
+        if (pendingFiles.getAndSet(files) != null) {
+            // Not yet handled, will use these files
+            return;
+        }
+        synchronized (keys) {
+            if (updateExecutor == null) {
+                updateExecutor = Executors.newSingleThreadExecutor(MapLocalFileWatcher::newThread);
+            }
+            ExecutorService executor = updateExecutor;
+            try {
+                executor.execute(() -> updateWatchedFiles(executor));
+            } catch (RejectedExecutionException e) {
+                // Stopped
+                pendingFiles.set(null);
+            }
+        }
+    }
+
+    private static Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ZAP-MapLocal-FileWatcher-Update");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private void updateWatchedFiles(ExecutorService executor) {
+        Collection<Path> files = pendingFiles.getAndSet(null);
+        if (files == null) {
+            return;
+        }
+
+        Map<Path, List<Path>> filesByDir = new HashMap<>();
+        for (Path file : files) {
+            Path absolutePath = file.toAbsolutePath();
+            Path dir = absolutePath.getParent();
+            if (dir != null) {
+                filesByDir.computeIfAbsent(dir, k -> new ArrayList<>()).add(absolutePath);
+            }
+        }
+
+        synchronized (keys) {
+            if (updateExecutor != executor || !start()) {
+                return;
+            }
+
+            for (Iterator<Map.Entry<Path, WatchKey>> it = keys.entrySet().iterator();
+                    it.hasNext(); ) {
+                Map.Entry<Path, WatchKey> entry = it.next();
+                if (!filesByDir.containsKey(entry.getKey())) {
+                    entry.getValue().cancel();
+                    it.remove();
+                }
+            }
+
+            Set<Path> watched = new HashSet<>();
+            for (Map.Entry<Path, List<Path>> entry : filesByDir.entrySet()) {
+                Path dir = entry.getKey();
+                if (!keys.containsKey(dir)) {
+                    try {
+                        keys.put(
+                                dir,
+                                dir.register(
+                                        watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY));
+                    } catch (IOException | UnsupportedOperationException e) {
+                        // Still validated by the cache
+                        LOGGER.debug("Unable to watch {}: {}", dir, e.getMessage());
+                        continue;
+                    }
+                }
+                for (Path file : entry.getValue()) {
+                    if (watched.add(file) && !watchedFiles.contains(file)) {
+                        // Might have been cached before being watched
+                        contentCache.remove(file);
+                        watchedFiles.add(file);
+                    }
+                }
+            }
+            watchedFiles.retainAll(watched);
+        }
+    }
+
+    private boolean start() {
+        if (watchService != null) {
+            return true;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Unable to watch the mapped files: {}", e.getMessage());
+            return false;
+        }
+        WatchService service = watchService;
+        Thread thread = new Thread(() -> processEvents(service), "ZAP-MapLocal-FileWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /** Stops watching, the cache goes back to check the attributes of all files. */
+    public void stop() {
+        pendingFiles.set(null);
+        synchronized (keys) {
+            if (updateExecutor != null) {
+                updateExecutor.shutdown();
+                updateExecutor = null;
+            }
+            watchedFiles.clear();
+            keys.clear();
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    LOGGER.debug(e.getMessage(), e);
+                }
+                watchService = null;
+            }
+        }
+    }
+
+    private void processEvents(WatchService service) {
+        Set<Path> changed = new HashSet<>();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean overflow = false;
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DEBOUNCE_MS);
+                // Debounce, collect until no events for a while, or for too long
+                while (key != null) {
+                    overflow |= collect(key, changed);
+                    if (!key.isValid()) {
+                        // Directory deleted or no longer accessible
+                        unwatch((Path) key.watchable());
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    key =
+                            service.poll(
+                                    Math.min(TimeUnit.MILLISECONDS.toNanos(DEBOUNCE_MS), remaining),
+                                    TimeUnit.NANOSECONDS);
+                }
+
+                if (overflow) {
+                    LOGGER.debug("Events lost, clearing the content cache.");
+                    contentCache.clear();
+                } else {
+                    for (Path file : changed) {
+                        contentCache.reload(file);
+                    }
+                }
+                changed.clear();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void unwatch(Path dir) {
+        synchronized (keys) {
+            if (keys.remove(dir) != null) {
+                watchedFiles.removeIf(file -> dir.equals(file.getParent()));
+            }
+        }
+    }
+
+    private static boolean collect(WatchKey key, Set<Path> changed) {
+        boolean overflow = false;
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            changed.add(dir.resolve((Path) event.context()));
+        }
+        key.reset();
+        return overflow;
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.parosproxy.paros.db.DatabaseException;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * Persists the changes to the map locals in the background, so that the callers (usually the EDT)
+ * do not wait for the database.
+ *
+ * <p>The changes are written in the order they were made, in batches. Changes to a map local not
+ * yet written are coalesced, for example, an add followed by an edit is written as a single
+ * insert and an add followed by a remove is not written at all. The ids of the map locals are set
+ * once inserted.
+ */
+public class MapLocalWriteBehindQueue {
+
+    private static final Logger LOGGER = LogManager.getLogger(MapLocalWriteBehindQueue.class);
+
+    /** The time, in milliseconds, changes are kept before being written, to coalesce them. */
+    private static final long WRITE_DELAY_MS = 200;
+
+    /** The number of pending changes that are written without waiting for the delay. */
+    private static final int WRITE_NOW_THRESHOLD = 1000;
+
+    private static final long FLUSH_TIMEOUT_SECONDS = 60;
+
+    private enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private static class Operation {
+
+        private Type type;
+        /** The map local whose id is used for updates and deletes. */
+        private MapLocalTableEntry target;
+        /** The map local with the values to write. */
+        private MapLocalTableEntry entry;
+        /** If the operation should no longer be written, kept in the list to cancel it in O(1). */
+        private boolean cancelled;
+
+        Operation(Type type, MapLocalTableEntry target, MapLocalTableEntry entry) {
+            this.type = type;
+            this.target = target;
+            this.entry = entry;
+        }
+    }
+
+    private final TableMapLocal table;
+
+    private final Object lock = new Object();
+    private List<Operation> pending = new ArrayList<>();
+    /** The number of operations in {@link #pending} not cancelled. */
+    private int pendingCount;
+    /** The last pending operation of each map local, by its current entry. */
+    private final Map<MapLocalTableEntry, Operation> pendingByEntry = new IdentityHashMap<>();
+
+    /** The write scheduled and not yet started, {@code null} if none. */
+    private ScheduledFuture<?> scheduledWrite;
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(
+                    r -> {
+                        Thread thread = new Thread(r, "ZAP-MapLocal-WriteBehind");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong maxQueueSize = new AtomicLong();
+    private final AtomicLong lastWriteTimeMs = new AtomicLong();
+
+    public MapLocalWriteBehindQueue(TableMapLocal table) {
+        this.table = table;
+    }
+
+    public void add(MapLocalTableEntry mapLocal) {
+        synchronized (lock) {
+            enqueue(new Operation(Type.INSERT, null, mapLocal));
+            scheduleWrite();
+        }
+    }
+
+    public void addAll(Collection<MapLocalTableEntry> mapLocals) {
+        synchronized (lock) {
+            for (MapLocalTableEntry mapLocal : mapLocals) {
+                enqueue(new Operation(Type.INSERT, null, mapLocal));
+            }
+            scheduleWrite();
+        }
+    }
+
+    public void update(MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
+        synchronized (lock) {
+            Operation previous = pendingByEntry.remove(oldMapLocal);
+            if (previous != null) {
+                // Insert or update not yet written, just write the new values
+                previous.entry = newMapLocal;
+                pendingByEntry.put(newMapLocal, previous);
+                coalesced.increment();
+            } else {
+                enqueue(new Operation(Type.UPDATE, oldMapLocal, newMapLocal));
+            }
+            scheduleWrite();
+        }
+    }
+
+    public void remove(MapLocalTableEntry mapLocal) {
+        synchronized (lock) {
+            Operation previous = pendingByEntry.remove(mapLocal);
+            if (previous == null) {
+                enqueue(new Operation(Type.DELETE, mapLocal, mapLocal));
+                scheduleWrite();
+                return;
+            }
+            coalesced.increment();
+            if (previous.type == Type.INSERT) {
+                // Never written
+                previous.cancelled = true;
+                pendingCount--;
+            } else {
+                previous.type = Type.DELETE;
+                previous.entry = previous.target;
+            }
+        }
+    }
+
+    private void enqueue(Operation operation) {
+        pending.add(operation);
+        pendingCount++;
+        pendingByEntry.put(operation.entry, operation);
+        enqueued.increment();
+        maxQueueSize.accumulateAndGet(pendingCount, Math::max);
+    }
+
+    /**
+     * Schedules a write, after the delay or, if there are many pending changes, right away. There
+     * is at most one write scheduled, a delayed write is brought forward if needed.
+     */
+    private void scheduleWrite() {
+        long delayMs = pendingCount >= WRITE_NOW_THRESHOLD ? 0 : WRITE_DELAY_MS;
+        if (scheduledWrite != null) {
+            if (delayMs > 0 || scheduledWrite.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                return;
+            }
+            if (!scheduledWrite.cancel(false)) {
+                // Already started, it will write the pending changes
+                return;
+            }
+        }
+        try {
+            scheduledWrite = executor.schedule(this::write, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down, written (if possible) by the flush
+            scheduledWrite = null;
+        }
+    }
+
+    /**
+     * Writes the pending changes and waits for them to be written.
+     *
+     * <p>Should be called before the session is closed.
+     */
+    public void flush() {
+        try {
+            executor.submit(this::write).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down, write in the calling thread
+            write();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn(e.getMessage(), e);
+        }
+    }
+
+    /** Writes the pending changes and stops the background thread. */
+    public void shutdown() {
+        flush();
+        executor.shutdownNow();
+    }
+
+    private void write() {
+        List<Operation> operations;
+        synchronized (lock) {
+            scheduledWrite = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            operations = pending;
+            pending = new ArrayList<>();
+            pendingCount = 0;
+            pendingByEntry.clear();
+        }
+
+        long start = System.currentTimeMillis();
+        List<MapLocalTableEntry> inserts = new ArrayList<>();
+        for (Operation operation : operations) {
+            if (operation.cancelled) {
+                continue;
+            }
+            if (operation.type == Type.INSERT) {
+                inserts.add(operation.entry);
+                continue;
+            }
+            // Keep the order, the inserts might be the targets of the operation
+            writeInserts(inserts);
+            if (operation.type == Type.UPDATE) {
+                writeUpdate(operation.target, operation.entry);
+            } else {
+                writeDelete(operation.target);
+            }
+        }
+        writeInserts(inserts);
+        lastWriteTimeMs.set(System.currentTimeMillis() - start);
+    }
+
+    private void writeInserts(List<MapLocalTableEntry> mapLocals) {
+        if (mapLocals.isEmpty()) {
+            return;
+        }
+        List<RecordMapLocal> records = new ArrayList<>(mapLocals.size());
+        for (MapLocalTableEntry mapLocal : mapLocals) {
+            records.add(
+                    new RecordMapLocal(
+                            -1,
+                            mapLocal.getString(),
+                            mapLocal.getMatch().toString(),
+                            mapLocal.isIgnoreCase(),
+                            mapLocal.getLocalPath().toString(),
+                            mapLocal.isServeLocally(),
+                            mapLocal.getContentType()));
+        }
+        try {
+            int[] ids = table.writeAll(records);
+            for (int i = 0; i < ids.length; i++) {
+                mapLocals.get(i).setMapLocalId(ids[i]);
+            }
+            written.add(ids.length);
+        } catch (DatabaseException e) {
+            // Some might have been written before the error
+            int count = 0;
+            for (int i = 0; i < records.size(); i++) {
+                int id = records.get(i).getMapLocalId();
+                if (id != -1) {
+                    mapLocals.get(i).setMapLocalId(id);
+                    count++;
+                }
+            }
+            written.add(count);
+            failed.add(mapLocals.size() - count);
+            LOGGER.warn(e.getMessage(), e);
+        }
+        mapLocals.clear();
+    }
+
+    private void writeUpdate(MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
+        try {
+            table.update(
+                    oldMapLocal.getMapLocalId(),
+                    newMapLocal.getString(),
+                    newMapLocal.getMatch().toString(),
+                    newMapLocal.isIgnoreCase(),
+                    newMapLocal.getLocalPath().toString(),
+                    newMapLocal.isServeLocally(),
+                    newMapLocal.getContentType());
+
+            newMapLocal.setMapLocalId(oldMapLocal.getMapLocalId());
+            written.increment();
+        } catch (DatabaseException e) {
+            failed.increment();
+            LOGGER.warn(e.getMessage(), e);
+        }
+    }
+
+    private void writeDelete(MapLocalTableEntry mapLocal) {
+        try {
+            table.deleteMapLocal(mapLocal.getMapLocalId());
+            written.increment();
+        } catch (DatabaseException e) {
+            failed.increment();
+            LOGGER.warn(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the number of changes waiting to be written.
+     *
+     * @return the number of changes.
+     */
+    public int getQueueSize() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    public long getMaxQueueSize() {
+        return maxQueueSize.get();
+    }
+
+    public long getEnqueued() {
+        return enqueued.sum();
+    }
+
+    /**
+     * Gets the number of changes merged into (or cancelled by) a change not yet written.
+     *
+     * @return the number of changes.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Gets the time it took to write the last batch of changes.
+     *
+     * @return the time, in milliseconds.
+     */
+    public long getLastWriteTime() {
+        return lastWriteTimeMs.get();
+    }
+}
@@ -27,14 +27,24 @@ public class RecordMapLocal {
     private String match;
     private boolean ignoreCase;
     private String localPath;
+    private boolean serveLocally;
+    private String contentType;
 
     public RecordMapLocal(
-            int mapLocalId, String urlString, String match, boolean ignoreCase, String localPath) {
+            int mapLocalId,
+            String urlString,
+            String match,
+            boolean ignoreCase,
+            String localPath,
+            boolean serveLocally,
+            String contentType) {
         this.mapLocalId = mapLocalId;
         this.urlString = urlString;
         this.match = match;
         this.ignoreCase = ignoreCase;
         this.localPath = localPath;
+        this.serveLocally = serveLocally;
+        this.contentType = contentType;
     }
 
     public int getMapLocalId() {
@@ -76,4 +86,20 @@ public class RecordMapLocal {
     public void setLocalPath(String localPath) {
         this.localPath = localPath;
     }
+
+    public boolean isServeLocally() {
+        return serveLocally;
+    }
+
+    public void setServeLocally(boolean serveLocally) {
+        this.serveLocally = serveLocally;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
 }
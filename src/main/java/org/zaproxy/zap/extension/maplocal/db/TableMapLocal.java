@@ -24,8 +24,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.parosproxy.paros.db.DatabaseException;
@@ -43,8 +46,14 @@ public class TableMapLocal extends ParosAbstractTable {
     private static final String MATCH = "MATCH";
     private static final String IGNORE_CASE = "IGNORE_CASE";
     private static final String LOCAL_PATH = "LOCAL_PATH";
+    private static final String SERVE_LOCALLY = "SERVE_LOCALLY";
+    private static final String CONTENT_TYPE = "CONTENT_TYPE";
+
+    /** The number of inserts sent to the database at once, by {@link #writeAll(List)}. */
+    private static final int BATCH_SIZE = 1000;
 
     private PreparedStatement psInsert;
+    private PreparedStatement psInsertAll;
     private PreparedStatement psSelect;
     private PreparedStatement psUpdate;
     private PreparedStatement psDeleteMapLocal;
@@ -69,27 +78,40 @@ public class TableMapLocal extends ParosAbstractTable {
                                 + IGNORE_CASE
                                 + " boolean NOT NULL, "
                                 + LOCAL_PATH
-                                + " varchar(1024) NOT NULL "
+                                + " varchar(1024) NOT NULL, "
+                                + SERVE_LOCALLY
+                                + " boolean DEFAULT FALSE NOT NULL, "
+                                + CONTENT_TYPE
+                                + " varchar(255) DEFAULT NULL "
                                 + ")");
+            } else {
+                // Sessions created by previous versions
+                addColumnIfMissing(conn, SERVE_LOCALLY, "boolean DEFAULT FALSE NOT NULL");
+                addColumnIfMissing(conn, CONTENT_TYPE, "varchar(255) DEFAULT NULL");
             }
 
             psSelect =
                     conn.prepareStatement(
                             "SELECT TOP 1 * FROM " + TABLE_NAME + " WHERE " + MAPLOCAL_ID + " = ?");
 
-            psInsert =
-                    conn.prepareStatement(
-                            "INSERT INTO "
-                                    + TABLE_NAME
-                                    + " ("
-                                    + URL_STRING
-                                    + ","
-                                    + MATCH
-                                    + ","
-                                    + IGNORE_CASE
-                                    + ","
-                                    + LOCAL_PATH
-                                    + ") VALUES (?, ?, ?, ?)");
+            String insert =
+                    "INSERT INTO "
+                            + TABLE_NAME
+                            + " ("
+                            + URL_STRING
+                            + ","
+                            + MATCH
+                            + ","
+                            + IGNORE_CASE
+                            + ","
+                            + LOCAL_PATH
+                            + ","
+                            + SERVE_LOCALLY
+                            + ","
+                            + CONTENT_TYPE
+                            + ") VALUES (?, ?, ?, ?, ?, ?)";
+            psInsert = conn.prepareStatement(insert);
+            psInsertAll = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS);
             psGetIdLastInsert = conn.prepareCall("CALL IDENTITY();");
             psDeleteMapLocal =
                     conn.prepareStatement(
@@ -107,6 +129,10 @@ public class TableMapLocal extends ParosAbstractTable {
                                     + IGNORE_CASE
                                     + " = ?, "
                                     + LOCAL_PATH
+                                    + " = ?, "
+                                    + SERVE_LOCALLY
+                                    + " = ?, "
+                                    + CONTENT_TYPE
                                     + " = ? "
                                     + "WHERE "
                                     + MAPLOCAL_ID
@@ -116,6 +142,14 @@ public class TableMapLocal extends ParosAbstractTable {
         }
     }
 
+    private static void addColumnIfMissing(Connection conn, String column, String definition)
+            throws DatabaseException, SQLException {
+        if (!DbUtils.hasColumn(conn, TABLE_NAME, column)) {
+            DbUtils.execute(
+                    conn, "ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
     public synchronized RecordMapLocal read(int mapLocId) throws DatabaseException {
         try {
             psSelect.setInt(1, mapLocId);
@@ -128,7 +162,12 @@ public class TableMapLocal extends ParosAbstractTable {
     }
 
     public synchronized RecordMapLocal write(
-            String urlString, String match, boolean ignoreCase, String localPath)
+            String urlString,
+            String match,
+            boolean ignoreCase,
+            String localPath,
+            boolean serveLocally,
+            String contentType)
             throws DatabaseException {
 
         try {
@@ -136,30 +175,127 @@ public class TableMapLocal extends ParosAbstractTable {
             psInsert.setString(2, match);
             psInsert.setBoolean(3, ignoreCase);
             psInsert.setString(4, localPath);
+            psInsert.setBoolean(5, serveLocally);
+            psInsert.setString(6, contentType);
             psInsert.executeUpdate();
 
-            int id;
-            try (ResultSet rs = psGetIdLastInsert.executeQuery()) {
-                rs.next();
-                id = rs.getInt(1);
+            return new RecordMapLocal(
+                    getIdLastInsert(),
+                    urlString,
+                    match,
+                    ignoreCase,
+                    localPath,
+                    serveLocally,
+                    contentType);
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
+    private int getIdLastInsert() throws SQLException {
+        try (ResultSet rs = psGetIdLastInsert.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Writes the given map locals, in batches, each in its own transaction.
+     *
+     * <p>The ids of the records are ignored, the generated ones are set to the records and
+     * returned.
+     *
+     * <p>The transactions are of the connection of the session, shared with the other tables, so
+     * they are kept to a batch and the auto-commit mode is restored after each. If the auto-commit
+     * is already disabled the batches are part of the transaction of the caller, not committed nor
+     * rolled back here.
+     *
+     * @param records the map locals to write.
+     * @return the generated ids, in the order of the records.
+     * @throws DatabaseException if an error occurred while writing the map locals. The records of
+     *     the batches already committed have their ids set, the others are not written.
+     */
+    public synchronized int[] writeAll(List<RecordMapLocal> records) throws DatabaseException {
+        int[] ids = new int[records.size()];
+        try {
+            int written = 0;
+            for (RecordMapLocal record : records) {
+                psInsertAll.setString(1, record.getUrlString());
+                psInsertAll.setString(2, record.getMatch());
+                psInsertAll.setBoolean(3, record.isIgnoreCase());
+                psInsertAll.setString(4, record.getLocalPath());
+                psInsertAll.setBoolean(5, record.isServeLocally());
+                psInsertAll.setString(6, record.getContentType());
+                psInsertAll.addBatch();
+                if (++written % BATCH_SIZE == 0) {
+                    executeInsertBatch(records, ids, written - BATCH_SIZE, written);
+                }
+            }
+            int pending = written % BATCH_SIZE;
+            if (pending > 0) {
+                executeInsertBatch(records, ids, written - pending, written);
             }
-            return read(id);
+            return ids;
         } catch (SQLException e) {
+            try {
+                psInsertAll.clearBatch();
+            } catch (SQLException e2) {
+                LOGGER.debug(e2.getMessage(), e2);
+            }
             throw new DatabaseException(e);
         }
     }
 
+    /**
+     * Executes the batch of the given records in a transaction, setting the ids generated for them
+     * if committed.
+     */
+    private void executeInsertBatch(List<RecordMapLocal> records, int[] ids, int from, int to)
+            throws SQLException {
+        Connection conn = psInsertAll.getConnection();
+        boolean autoCommit = conn.getAutoCommit();
+        if (autoCommit) {
+            conn.setAutoCommit(false);
+        }
+        try {
+            psInsertAll.executeBatch();
+            int i = from;
+            try (ResultSet rs = psInsertAll.getGeneratedKeys()) {
+                while (i < to && rs.next()) {
+                    ids[i++] = rs.getInt(1);
+                }
+            }
+            if (i < to) {
+                throw new SQLException("Ids not generated for all the map locals written.");
+            }
+            if (autoCommit) {
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            if (autoCommit) {
+                try {
+                    conn.rollback();
+                } catch (SQLException e2) {
+                    LOGGER.debug(e2.getMessage(), e2);
+                }
+            }
+            Arrays.fill(ids, from, to, 0);
+            throw e;
+        } finally {
+            if (autoCommit) {
+                conn.setAutoCommit(true);
+            }
+        }
+        for (int i = from; i < to; i++) {
+            records.get(i).setMapLocalId(ids[i]);
+        }
+    }
+
     private static RecordMapLocal build(ResultSet rs) throws DatabaseException {
         try {
             RecordMapLocal recordMapLocal = null;
             if (rs.next()) {
-                recordMapLocal =
-                        new RecordMapLocal(
-                                rs.getInt(MAPLOCAL_ID),
-                                rs.getString(URL_STRING),
-                                rs.getString(MATCH),
-                                rs.getBoolean(IGNORE_CASE),
-                                rs.getString(LOCAL_PATH));
+                recordMapLocal = buildCurrent(rs);
             }
             return recordMapLocal;
         } catch (SQLException e) {
@@ -167,6 +303,40 @@ public class TableMapLocal extends ParosAbstractTable {
         }
     }
 
+    private static RecordMapLocal buildCurrent(ResultSet rs) throws SQLException {
+        return new RecordMapLocal(
+                rs.getInt(MAPLOCAL_ID),
+                rs.getString(URL_STRING),
+                rs.getString(MATCH),
+                rs.getBoolean(IGNORE_CASE),
+                rs.getString(LOCAL_PATH),
+                rs.getBoolean(SERVE_LOCALLY),
+                rs.getString(CONTENT_TYPE));
+    }
+
+    /**
+     * Reads all the map locals with a single query, in the order they were written.
+     *
+     * <p>The records are passed to the given consumer as they are read, without holding them all.
+     *
+     * @param consumer the consumer of the records.
+     * @throws DatabaseException if an error occurred while reading the map locals.
+     */
+    public void readAll(Consumer<RecordMapLocal> consumer) throws DatabaseException {
+        try (PreparedStatement psReadAll =
+                getConnection()
+                        .prepareStatement(
+                                "SELECT * FROM " + TABLE_NAME + " ORDER BY " + MAPLOCAL_ID)) {
+            try (ResultSet rs = psReadAll.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(buildCurrent(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        }
+    }
+
     public synchronized void deleteMapLocal(int mapLocId) throws DatabaseException {
         try {
             psDeleteMapLocal.setInt(1, mapLocId);
@@ -177,7 +347,13 @@ public class TableMapLocal extends ParosAbstractTable {
     }
 
     public synchronized void update(
-            int mapLocId, String urlString, String match, boolean ignoreCase, String localPath)
+            int mapLocId,
+            String urlString,
+            String match,
+            boolean ignoreCase,
+            String localPath,
+            boolean serveLocally,
+            String contentType)
             throws DatabaseException {
 
         try {
@@ -185,7 +361,9 @@ public class TableMapLocal extends ParosAbstractTable {
             psUpdate.setString(2, match);
             psUpdate.setBoolean(3, ignoreCase);
             psUpdate.setString(4, localPath);
-            psUpdate.setInt(5, mapLocId);
+            psUpdate.setBoolean(5, serveLocally);
+            psUpdate.setString(6, contentType);
+            psUpdate.setInt(7, mapLocId);
             psUpdate.executeUpdate();
         } catch (SQLException e) {
             throw new DatabaseException(e);
@@ -0,0 +1,174 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.regex.PatternSyntaxException;
+import net.sf.json.JSONException;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentType;
+import org.zaproxy.zap.extension.maplocal.match.PathPrefix;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * Reads and writes files with map locals, one JSON object per line (JSON Lines), for example:
+ *
+ * <pre>{@code
+ * {"url":"https://example.com/app.js","match":"contains","localPath":"mocks/app.js"}
+ * }</pre>
+ *
+ * <p>Besides those, the map locals have the optional {@code ignoreCase}, {@code enabled} and
+ * {@code serveLocally} booleans, and the {@code contentType}. The files are read a line at a time,
+ * blank lines and lines starting with {@code #} are ignored. Relative local paths are resolved
+ * against the directory of the file, so that the files can be kept together with the mapped files.
+ *
+ * <p>The map locals read are validated as when added through the dialog or the API, the regular
+ * expressions must compile, the prefixes must not have a query, and the local paths must be
+ * readable, directories only for prefixes.
+ */
+public final class MapLocalRuleFile {
+
+    private static final String URL = "url";
+    private static final String MATCH = "match";
+    private static final String IGNORE_CASE = "ignoreCase";
+    private static final String LOCAL_PATH = "localPath";
+    private static final String ENABLED = "enabled";
+    private static final String SERVE_LOCALLY = "serveLocally";
+    private static final String CONTENT_TYPE = "contentType";
+
+    private MapLocalRuleFile() {}
+
+    /**
+     * Reads the map locals of the given file.
+     *
+     * @param file the file to read.
+     * @param consumer the consumer of the map locals, called as they are read.
+     * @return the number of map locals read.
+     * @throws IOException if an error occurred while reading the file or if a line is not valid,
+     *     the exception message has the line number.
+     */
+    public static int read(Path file, Consumer<MapLocalTableEntry> consumer) throws IOException {
+        Path baseDir = file.toAbsolutePath().getParent();
+        int count = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    consumer.accept(parse(trimmed, baseDir));
+                } catch (JSONException | IllegalArgumentException e) {
+                    throw new IOException(
+                            "Line " + lineNumber + " is not a valid map local: " + e.getMessage(),
+                            e);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static MapLocalTableEntry parse(String line, Path baseDir) {
+        JSONObject object = JSONObject.fromObject(line);
+        if (!object.containsKey(URL) || !object.containsKey(LOCAL_PATH)) {
+            throw new IllegalArgumentException("missing url or localPath");
+        }
+
+        String url = object.getString(URL);
+        MapLocalTableEntry.Match match =
+                MapLocalTableEntry.Match.valueOf(
+                        object.optString(MATCH, MapLocalTableEntry.Match.contains.name()));
+        if (MapLocalTableEntry.Match.regex.equals(match)) {
+            try {
+                MapLocalTableEntry.compileRegex(url, false);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("invalid regex url");
+            }
+        } else if (MapLocalTableEntry.Match.prefix.equals(match)
+                && PathPrefix.of(url, false) == null) {
+            throw new IllegalArgumentException("invalid prefix url");
+        }
+
+        Path localPath = Path.of(object.getString(LOCAL_PATH));
+        if (!localPath.isAbsolute() && baseDir != null) {
+            localPath = baseDir.resolve(localPath).normalize();
+        }
+        if (!Files.isReadable(localPath)) {
+            throw new IllegalArgumentException("localPath is not readable");
+        }
+        if (Files.isDirectory(localPath) && !MapLocalTableEntry.Match.prefix.equals(match)) {
+            throw new IllegalArgumentException("localPath is a directory, but match is not prefix");
+        }
+
+        Object value = object.opt(CONTENT_TYPE);
+        String contentType = value == null || value instanceof JSONNull ? null : value.toString();
+        if (contentType != null
+                && !contentType.isBlank()
+                && !MapLocalContentType.isValid(contentType)) {
+            throw new IllegalArgumentException("invalid contentType");
+        }
+
+        MapLocalTableEntry mapLocal =
+                new MapLocalTableEntry(
+                        url, match, object.optBoolean(IGNORE_CASE, false), localPath);
+        mapLocal.setEnabled(object.optBoolean(ENABLED, true));
+        mapLocal.setServeLocally(object.optBoolean(SERVE_LOCALLY, false));
+        mapLocal.setContentType(contentType);
+        return mapLocal;
+    }
+
+    /**
+     * Writes the given map locals to the given file, replacing its content.
+     *
+     * @param file the file to write.
+     * @param mapLocals the map locals to write.
+     * @throws IOException if an error occurred while writing the file.
+     */
+    public static void write(Path file, Iterable<MapLocalTableEntry> mapLocals)
+            throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (MapLocalTableEntry mapLocal : mapLocals) {
+                JSONObject object = new JSONObject();
+                object.put(URL, mapLocal.getString());
+                object.put(MATCH, mapLocal.getMatch().name());
+                object.put(IGNORE_CASE, mapLocal.isIgnoreCase());
+                object.put(LOCAL_PATH, mapLocal.getLocalPath().toString());
+                object.put(ENABLED, mapLocal.isEnabled());
+                object.put(SERVE_LOCALLY, mapLocal.isServeLocally());
+                if (mapLocal.getContentType() != null) {
+                    object.put(CONTENT_TYPE, mapLocal.getContentType());
+                }
+                writer.write(object.toString());
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * An immutable Aho-Corasick automaton, finds in a single pass over a text which of the patterns
+ * occur in it.
+ *
+ * <p>Each pattern is associated with a value (the position of the map local that owns it), the
+ * automaton reports the lowest value of all the patterns found, or all of them.
+ */
+public class AhoCorasickAutomaton {
+
+    /** The value returned when none of the patterns is found. */
+    public static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final boolean ignoreCase;
+
+    /** The sorted transition characters of each node. */
+    private final char[][] keys;
+    /** The target nodes, parallel to {@link #keys}. */
+    private final int[][] targets;
+
+    private final int[] failure;
+    /** The lowest value of the patterns ending in the node, or in any of its failure nodes. */
+    private final int[] output;
+
+    /** The values of the patterns ending in the node. */
+    private final int[][] values;
+    /** The closest failure node that has values, or -1 if none. */
+    private final int[] dictionary;
+
+    private AhoCorasickAutomaton(
+            boolean ignoreCase,
+            char[][] keys,
+            int[][] targets,
+            int[] failure,
+            int[] output,
+            int[][] values,
+            int[] dictionary) {
+        this.ignoreCase = ignoreCase;
+        this.keys = keys;
+        this.targets = targets;
+        this.failure = failure;
+        this.output = output;
+        this.values = values;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Gets the lowest value of the patterns that occur in the given text.
+     *
+     * @param text the text to search.
+     * @return the lowest value, or {@link #NO_MATCH} if none of the patterns occur in the text.
+     */
+    public int findLowest(String text) {
+        return findLowest(text, NO_MATCH);
+    }
+
+    /**
+     * Gets the lowest value, less than the given limit, of the patterns that occur in the given
+     * text.
+     *
+     * @param text the text to search.
+     * @param limit the (exclusive) upper bound of the values.
+     * @return the lowest value, or {@link #NO_MATCH} if none.
+     */
+    public int findLowest(String text, int limit) {
+        int best = limit;
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalise(text.charAt(i));
+            int next;
+            while ((next = transition(node, c)) == -1 && node != 0) {
+                node = failure[node];
+            }
+            node = next == -1 ? 0 : next;
+            if (output[node] < best) {
+                best = output[node];
+            }
+        }
+        return best < limit ? best : NO_MATCH;
+    }
+
+    /**
+     * Sets, in the given {@code BitSet}, the values of all the patterns that occur in the given
+     * text.
+     *
+     * @param text the text to search.
+     * @param found where to set the values found.
+     */
+    public void findAll(String text, BitSet found) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalise(text.charAt(i));
+            int next;
+            while ((next = transition(node, c)) == -1 && node != 0) {
+                node = failure[node];
+            }
+            node = next == -1 ? 0 : next;
+            if (output[node] == NO_MATCH) {
+                continue;
+            }
+            for (int n = values[node].length != 0 ? node : dictionary[node];
+                    n != -1;
+                    n = dictionary[n]) {
+                for (int value : values[n]) {
+                    found.set(value);
+                }
+            }
+        }
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    private int transition(int node, char c) {
+        int idx = Arrays.binarySearch(keys[node], c);
+        return idx < 0 ? -1 : targets[node][idx];
+    }
+
+    private char normalise(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    /** A builder of {@link AhoCorasickAutomaton}s. */
+    public static class Builder {
+
+        private final boolean ignoreCase;
+        private final List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        private final List<Integer> values = new ArrayList<>();
+        private final List<List<Integer>> allValues = new ArrayList<>();
+
+        public Builder(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            newNode();
+        }
+
+        private int newNode() {
+            trie.add(new TreeMap<>());
+            values.add(NO_MATCH);
+            allValues.add(new ArrayList<>(1));
+            return trie.size() - 1;
+        }
+
+        /**
+         * Adds a pattern, empty patterns are ignored.
+         *
+         * @param pattern the pattern.
+         * @param value the value reported when the pattern is found, must not be negative.
+         * @return this builder.
+         */
+        public Builder add(String pattern, int value) {
+            if (pattern == null || pattern.isEmpty()) {
+                return this;
+            }
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (ignoreCase) {
+                    c = Character.toLowerCase(c);
+                }
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = newNode();
+                    trie.get(node).put(c, next);
+                }
+                node = next;
+            }
+            values.set(node, Math.min(values.get(node), value));
+            allValues.get(node).add(value);
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return trie.size() == 1;
+        }
+
+        public AhoCorasickAutomaton build() {
+            int size = trie.size();
+            char[][] keys = new char[size][];
+            int[][] targets = new int[size][];
+            for (int node = 0; node < size; node++) {
+                TreeMap<Character, Integer> children = trie.get(node);
+                keys[node] = new char[children.size()];
+                targets[node] = new int[children.size()];
+                int i = 0;
+                for (var child : children.entrySet()) {
+                    keys[node][i] = child.getKey();
+                    targets[node][i] = child.getValue();
+                    i++;
+                }
+            }
+
+            int[] failure = new int[size];
+            int[] output = new int[size];
+            output[0] = values.get(0);
+            int[][] nodeValues = new int[size][];
+            for (int node = 0; node < size; node++) {
+                nodeValues[node] =
+                        allValues.get(node).stream().mapToInt(Integer::intValue).toArray();
+            }
+            int[] dictionary = new int[size];
+            dictionary[0] = -1;
+
+            // Breadth first, so that the failure node is always processed before
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : targets[0]) {
+                failure[child] = 0;
+                output[child] = values.get(child);
+                dictionary[child] = -1;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (int i = 0; i < keys[node].length; i++) {
+                    char c = keys[node][i];
+                    int child = targets[node][i];
+
+                    int fallback = failure[node];
+                    int next;
+                    while ((next = transition(keys, targets, fallback, c)) == -1
+                            && fallback != 0) {
+                        fallback = failure[fallback];
+                    }
+                    failure[child] = next == -1 ? 0 : next;
+                    output[child] = Math.min(values.get(child), output[failure[child]]);
+                    int failNode = failure[child];
+                    dictionary[child] =
+                            nodeValues[failNode].length != 0 ? failNode : dictionary[failNode];
+                    queue.add(child);
+                }
+            }
+
+            return new AhoCorasickAutomaton(
+                    ignoreCase, keys, targets, failure, output, nodeValues, dictionary);
+        }
+
+        private static int transition(char[][] keys, int[][] targets, int node, char c) {
+            int idx = Arrays.binarySearch(keys[node], c);
+            return idx < 0 ? -1 : targets[node][idx];
+        }
+    }
+}
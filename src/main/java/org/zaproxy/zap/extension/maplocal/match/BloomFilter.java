@@ -0,0 +1,108 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+/**
+ * An immutable Bloom filter of {@code long} keys, tells if a key might have been added (with
+ * false positives) or was definitely not added (no false negatives).
+ */
+public final class BloomFilter {
+
+    private static final int BITS_PER_KEY = 16;
+    private static final int HASHES = 4;
+
+    private final long[] bits;
+    private final int mask;
+
+    private BloomFilter(long[] bits) {
+        this.bits = bits;
+        this.mask = bits.length * Long.SIZE - 1;
+    }
+
+    /**
+     * Tells whether or not the given key might have been added.
+     *
+     * @param key the key to check.
+     * @return {@code false} if the key was not added, {@code true} if it might have been.
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The finalizer of SplitMix64, spreads the bits of keys that differ in a few bits. */
+    private static long mix(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** A builder of {@code BloomFilter}s. */
+    public static class Builder {
+
+        private final long[] bits;
+        private final int mask;
+        private boolean empty = true;
+
+        /**
+         * Constructs a {@code Builder} for the given number of keys.
+         *
+         * @param expectedKeys the number of keys that will be added.
+         */
+        public Builder(int expectedKeys) {
+            int size = Long.SIZE;
+            long target = Math.max(1, expectedKeys) * (long) BITS_PER_KEY;
+            while (size < target && size < (1 << 30)) {
+                size <<= 1;
+            }
+            this.bits = new long[size / Long.SIZE];
+            this.mask = size - 1;
+        }
+
+        public Builder add(long key) {
+            long hash = mix(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                int bit = (h1 + i * h2) & mask;
+                bits[bit >>> 6] |= 1L << bit;
+            }
+            empty = false;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return empty;
+        }
+
+        public BloomFilter build() {
+            return new BloomFilter(bits.clone());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.Locale;
+import org.apache.commons.httpclient.URI;
+import org.apache.commons.httpclient.URIException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.parosproxy.paros.model.Model;
+import org.parosproxy.paros.network.HttpMessage;
+import org.zaproxy.zap.extension.httppanel.Message;
+
+/**
+ * The values of a message used to match it against the map locals, computed once per message
+ * instead of once per map local.
+ *
+ * <p>The values other than the URI are computed on first use. Not thread safe, a context is meant
+ * to be used by the thread handling the message.
+ */
+public final class MapLocalMatchContext {
+
+    private static final Logger LOGGER = LogManager.getLogger(MapLocalMatchContext.class);
+
+    private final HttpMessage message;
+    private final String uri;
+    private final boolean onlyIfInScope;
+    private final MapLocalScopeCache scopeCache;
+
+    private String lowerCaseUri;
+    private String host;
+    private String path;
+    private String origin;
+    private String[] pathSegments;
+    private String[] lowerCasePathSegments;
+    private int inScope = -1;
+
+    private MapLocalMatchContext(
+            HttpMessage message, boolean onlyIfInScope, MapLocalScopeCache scopeCache) {
+        this.message = message;
+        this.uri = message.getRequestHeader().getURI().toString();
+        this.onlyIfInScope = onlyIfInScope;
+        this.scopeCache = scopeCache;
+    }
+
+    /**
+     * Creates the context for the given message.
+     *
+     * @param aMessage the message to match.
+     * @param isRequest {@code true} if matching the request, {@code false} if the response.
+     * @param onlyIfInScope {@code true} if only messages in scope should be matched.
+     * @return the context, or {@code null} if the message can not be matched by map locals.
+     */
+    public static MapLocalMatchContext of(
+            Message aMessage, boolean isRequest, boolean onlyIfInScope) {
+        return of(aMessage, isRequest, onlyIfInScope, null);
+    }
+
+    /**
+     * Creates the context for the given message, with the scope decisions cached in the given
+     * cache.
+     *
+     * @param aMessage the message to match.
+     * @param isRequest {@code true} if matching the request, {@code false} if the response.
+     * @param onlyIfInScope {@code true} if only messages in scope should be matched.
+     * @param scopeCache the cache of scope decisions, might be {@code null}.
+     * @return the context, or {@code null} if the message can not be matched by map locals.
+     */
+    public static MapLocalMatchContext of(
+            Message aMessage,
+            boolean isRequest,
+            boolean onlyIfInScope,
+            MapLocalScopeCache scopeCache) {
+        if (isRequest || !(aMessage instanceof HttpMessage)) {
+            return null;
+        }
+        return new MapLocalMatchContext((HttpMessage) aMessage, onlyIfInScope, scopeCache);
+    }
+
+    public HttpMessage getMessage() {
+        return message;
+    }
+
+    public boolean isOnlyIfInScope() {
+        return onlyIfInScope;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * Gets the URI in lower case, as used by map locals that ignore case.
+     *
+     * @return the URI in lower case.
+     */
+    public String getLowerCaseUri() {
+        if (lowerCaseUri == null) {
+            lowerCaseUri = uri.toLowerCase();
+        }
+        return lowerCaseUri;
+    }
+
+    /**
+     * Gets the host of the URI, in lower case.
+     *
+     * @return the host, empty if none.
+     */
+    public String getHost() {
+        if (host == null) {
+            try {
+                String uriHost = message.getRequestHeader().getURI().getHost();
+                host = uriHost == null ? "" : uriHost.toLowerCase(Locale.ROOT);
+            } catch (URIException e) {
+                LOGGER.debug(e.getMessage(), e);
+                host = "";
+            }
+        }
+        return host;
+    }
+
+    /**
+     * Gets the path of the URI, escaped as in the URI.
+     *
+     * @return the path, empty if none.
+     */
+    public String getPath() {
+        if (path == null) {
+            String uriPath = message.getRequestHeader().getURI().getEscapedPath();
+            path = uriPath == null ? "" : uriPath;
+        }
+        return path;
+    }
+
+    /**
+     * Gets the scheme, host and port of the URI, as compared by {@link PathPrefix}.
+     *
+     * @return the origin.
+     */
+    public String getOrigin() {
+        if (origin == null) {
+            URI requestUri = message.getRequestHeader().getURI();
+            origin = PathPrefix.toOrigin(requestUri.getScheme(), getHost(), requestUri.getPort());
+        }
+        return origin;
+    }
+
+    /**
+     * Gets the non-empty segments of the path.
+     *
+     * @return the segments, must not be modified.
+     */
+    public String[] getPathSegments() {
+        if (pathSegments == null) {
+            pathSegments = PathPrefix.toSegments(getPath());
+        }
+        return pathSegments;
+    }
+
+    /**
+     * Gets the non-empty segments of the path, in lower case.
+     *
+     * @return the segments, must not be modified.
+     */
+    public String[] getLowerCasePathSegments() {
+        if (lowerCasePathSegments == null) {
+            String[] segments = getPathSegments();
+            String[] lowerCase = new String[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                lowerCase[i] = segments[i].toLowerCase(Locale.ROOT);
+            }
+            lowerCasePathSegments = lowerCase;
+        }
+        return lowerCasePathSegments;
+    }
+
+    /**
+     * Tells whether or not the message can be mapped given the scope, checked once.
+     *
+     * @return {@code true} if in scope or the scope does not matter, {@code false} otherwise.
+     */
+    public boolean isInScope() {
+        if (!onlyIfInScope) {
+            return true;
+        }
+        if (inScope == -1) {
+            boolean result =
+                    scopeCache != null
+                            ? scopeCache.isInScope(uri)
+                            : Model.getSingleton().getSession().isInScope(uri);
+            inScope = result ? 1 : 0;
+        }
+        return inScope == 1;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * A bounded cache of the map local that matches each URI, including the URIs no map local
+ * matches.
+ *
+ * <p>The entries are valid only for the version of the {@link MapLocalRuleSet} they were resolved
+ * with, a new version (any change to the enabled map locals) invalidates them all. The URIs are
+ * kept apart for each {@code onlyIfInScope} value, so that the lookups do not allocate, and
+ * evicted in least recently used order once the maximum number of entries is exceeded. The map
+ * locals resolved before and stored after the cache is cleared are discarded.
+ */
+public class MapLocalResolutionCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final Map<String, Entry> entries;
+    private final Map<String, Entry> inScopeEntries;
+    /** The number of times cleared. */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MapLocalResolutionCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructs a {@code MapLocalResolutionCache} with the given maximum number of entries.
+     *
+     * @param maxEntries the maximum number of URIs kept, for each {@code onlyIfInScope} value.
+     */
+    public MapLocalResolutionCache(int maxEntries) {
+        entries = createEntries(maxEntries);
+        inScopeEntries = createEntries(maxEntries);
+    }
+
+    private static Map<String, Entry> createEntries(int maxEntries) {
+        return new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Finds the map local that matches the message of the given context, using the cached result
+     * if resolved with the same rule set version.
+     *
+     * @param ruleSet the rule set to resolve with, if not cached.
+     * @param context the context of the message.
+     * @return the map local, or {@code null} if none matches.
+     */
+    public MapLocalTableEntry find(MapLocalRuleSet ruleSet, MapLocalMatchContext context) {
+        Map<String, Entry> uris = context.isOnlyIfInScope() ? inScopeEntries : entries;
+        String uri = context.getUri();
+        long version = ruleSet.getVersion();
+        long resolvedGeneration;
+        synchronized (uris) {
+            Entry entry = uris.get(uri);
+            if (entry != null && entry.version == version) {
+                hits.increment();
+                return entry.mapLocal;
+            }
+            resolvedGeneration = generation.get();
+        }
+
+        misses.increment();
+        // Resolved without the lock, a concurrent miss just resolves it again
+        MapLocalTableEntry mapLocal = ruleSet.find(context);
+        synchronized (uris) {
+            if (resolvedGeneration == generation.get()) {
+                uris.put(uri, new Entry(version, mapLocal));
+            }
+        }
+        return mapLocal;
+    }
+
+    /** Clears the cache, should be called when the results might change for the same version. */
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+        synchronized (inScopeEntries) {
+            inScopeEntries.clear();
+        }
+    }
+
+    public int getEntryCount() {
+        int count;
+        synchronized (entries) {
+            count = entries.size();
+        }
+        synchronized (inScopeEntries) {
+            return count + inScopeEntries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the ratio of the lookups that were hits.
+     *
+     * @return the hit rate, between 0 and 1.
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static class Entry {
+
+        private final long version;
+        private final MapLocalTableEntry mapLocal;
+
+        Entry(long version, MapLocalTableEntry mapLocal) {
+            this.version = version;
+            this.mapLocal = mapLocal;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * A fast reject of the messages that can not match any of the enabled map locals.
+ *
+ * <p>The {@code prefix} map locals add their host to a {@link BloomFilter}, the others add the
+ * first trigram of their string or (longest) required literal to another, as the string of a
+ * {@code contains} match might be anywhere in the URI, not just in its host. A URI whose host and
+ * trigrams are in neither filter matches none of the map locals, checked without looking at the
+ * map locals. If any map local has no usable literal the filter accepts all the messages.
+ *
+ * <p>The trigrams are compared with ASCII letters folded to lower case, so case sensitive and
+ * insensitive map locals are handled alike. URIs with non-ASCII characters are always accepted,
+ * their case folding might not map one character to one.
+ */
+public final class MapLocalRuleFilter {
+
+    /** The filter that accepts all the messages. */
+    public static final MapLocalRuleFilter ACCEPT_ALL = new MapLocalRuleFilter(null, null);
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final BloomFilter hosts;
+    private final BloomFilter grams;
+
+    private MapLocalRuleFilter(BloomFilter hosts, BloomFilter grams) {
+        this.hosts = hosts;
+        this.grams = grams;
+    }
+
+    /**
+     * Creates the filter for the given map locals.
+     *
+     * @param mapLocals the enabled map locals.
+     * @return the filter, {@link #ACCEPT_ALL} if some map local can not be filtered.
+     */
+    public static MapLocalRuleFilter of(List<MapLocalTableEntry> mapLocals) {
+        BloomFilter.Builder hostsBuilder = new BloomFilter.Builder(mapLocals.size());
+        BloomFilter.Builder gramsBuilder = new BloomFilter.Builder(mapLocals.size());
+        for (MapLocalTableEntry mapLocal : mapLocals) {
+            if (MapLocalTableEntry.Match.prefix.equals(mapLocal.getMatch())) {
+                PathPrefix prefix = mapLocal.getPathPrefix();
+                if (prefix != null) {
+                    hostsBuilder.add(mapLocal.getHost().toLowerCase(Locale.ROOT).hashCode());
+                }
+                // Otherwise never matches
+                continue;
+            }
+            String literal = getLiteral(mapLocal);
+            if (literal.length() < GRAM_LENGTH || !isAscii(literal)) {
+                return ACCEPT_ALL;
+            }
+            gramsBuilder.add(gramKey(literal, 0));
+        }
+        return new MapLocalRuleFilter(
+                hostsBuilder.isEmpty() ? null : hostsBuilder.build(),
+                gramsBuilder.isEmpty() ? null : gramsBuilder.build());
+    }
+
+    private static String getLiteral(MapLocalTableEntry mapLocal) {
+        if (MapLocalTableEntry.Match.contains.equals(mapLocal.getMatch())) {
+            return mapLocal.getString();
+        }
+        Pattern pattern = mapLocal.getPattern();
+        return pattern == null ? "" : RegexLiterals.longest(pattern.pattern());
+    }
+
+    public boolean isAcceptAll() {
+        return this == ACCEPT_ALL;
+    }
+
+    /**
+     * Tells whether or not the message of the given context might match any of the map locals.
+     *
+     * @param context the context of the message.
+     * @return {@code false} if no map local matches, {@code true} if some might.
+     */
+    public boolean mightMatch(MapLocalMatchContext context) {
+        if (this == ACCEPT_ALL) {
+            return true;
+        }
+        if (hosts != null && hosts.mightContain(context.getHost().hashCode())) {
+            return true;
+        }
+        if (grams == null) {
+            return false;
+        }
+        String uri = context.getUri();
+        if (!isAscii(uri)) {
+            return true;
+        }
+        for (int i = 0; i + GRAM_LENGTH <= uri.length(); i++) {
+            if (grams.mightContain(gramKey(uri, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long gramKey(String text, int start) {
+        long key = 0;
+        for (int i = start; i < start + GRAM_LENGTH; i++) {
+            key = (key << 8) | foldAscii(text.charAt(i));
+        }
+        return key;
+    }
+
+    private static char foldAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
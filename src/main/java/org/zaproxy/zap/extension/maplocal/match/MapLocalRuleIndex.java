@@ -0,0 +1,168 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * An immutable index of the enabled map locals.
+ *
+ * <p>The {@code prefix} map locals are keyed by the scheme, host and port of their URL, in a
+ * {@link PathPrefixTree}, so only those of the host of the message are checked. The {@code
+ * contains} map locals are compiled into {@link AhoCorasickAutomaton}s (one case sensitive, one
+ * not) so that a single pass over the URI finds all of them, wherever their string is in the URI
+ * (for example, a URL in the query of another host). The {@code regex} map locals are kept in a
+ * {@link RegexRuleSet}, only those whose required literals are in the URI are fully matched. The
+ * lowest position wins, so the first matching map local is the same as with a linear scan.
+ */
+public class MapLocalRuleIndex {
+
+    private static final int NO_MATCH = AhoCorasickAutomaton.NO_MATCH;
+
+    private final MapLocalTableEntry[] mapLocals;
+    private final Bucket bucket;
+    private final PathPrefixTree prefixes;
+
+    public MapLocalRuleIndex(List<MapLocalTableEntry> mapLocals) {
+        this.mapLocals = mapLocals.toArray(new MapLocalTableEntry[0]);
+
+        List<Integer> others = new ArrayList<>();
+        PathPrefixTree.Builder prefixesBuilder = new PathPrefixTree.Builder();
+        for (int i = 0; i < this.mapLocals.length; i++) {
+            if (MapLocalTableEntry.Match.prefix.equals(this.mapLocals[i].getMatch())) {
+                PathPrefix prefix = this.mapLocals[i].getPathPrefix();
+                if (prefix != null) {
+                    prefixesBuilder.add(prefix, i);
+                }
+                // Otherwise never matches
+                continue;
+            }
+            // Not by host, the string of a contains match might be anywhere in the URI
+            others.add(i);
+        }
+
+        bucket = new Bucket(others);
+        prefixes = prefixesBuilder.build();
+    }
+
+    public int size() {
+        return mapLocals.length;
+    }
+
+    public MapLocalTableEntry find(MapLocalMatchContext context) {
+        if (mapLocals.length == 0) {
+            return null;
+        }
+        if (!context.isInScope()) {
+            // None would match, no need to check each one
+            return null;
+        }
+
+        int best = NO_MATCH;
+        if (!prefixes.isEmpty()) {
+            best = prefixes.findLowest(context, best);
+        }
+        best = bucket.find(context, best);
+        return best == NO_MATCH ? null : mapLocals[best];
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** The map locals, other than prefix, with the {@code contains} ones in automatons. */
+    private class Bucket {
+
+        private final int[] positions;
+        private final RegexRuleSet others;
+        private final AhoCorasickAutomaton caseSensitive;
+        private final AhoCorasickAutomaton ignoreCase;
+
+        Bucket(List<Integer> positions) {
+            this.positions = toArray(positions);
+
+            List<Integer> otherPositions = new ArrayList<>();
+            List<Pattern> otherPatterns = new ArrayList<>();
+            AhoCorasickAutomaton.Builder csBuilder = new AhoCorasickAutomaton.Builder(false);
+            AhoCorasickAutomaton.Builder ciBuilder = new AhoCorasickAutomaton.Builder(true);
+            for (int position : positions) {
+                MapLocalTableEntry mapLocal = mapLocals[position];
+                if (MapLocalTableEntry.Match.contains.equals(mapLocal.getMatch())
+                        && !mapLocal.getString().isEmpty()) {
+                    (mapLocal.isIgnoreCase() ? ciBuilder : csBuilder)
+                            .add(mapLocal.getString(), position);
+                } else {
+                    otherPositions.add(position);
+                    otherPatterns.add(
+                            MapLocalTableEntry.Match.regex.equals(mapLocal.getMatch())
+                                    ? mapLocal.getPattern()
+                                    : null);
+                }
+            }
+            others = new RegexRuleSet(toArray(otherPositions), otherPatterns);
+            caseSensitive = csBuilder.isEmpty() ? null : csBuilder.build();
+            ignoreCase = ciBuilder.isEmpty() ? null : ciBuilder.build();
+        }
+
+        /**
+         * Gets the position of the first map local, below the given limit, that matches the
+         * message.
+         */
+        int find(MapLocalMatchContext context, int limit) {
+            String uri = context.getUri();
+            int candidate = limit;
+            if (caseSensitive != null) {
+                candidate = Math.min(candidate, caseSensitive.findLowest(uri, candidate));
+            }
+            if (ignoreCase != null) {
+                candidate = Math.min(candidate, ignoreCase.findLowest(uri, candidate));
+            }
+
+            int other =
+                    others.find(
+                            uri,
+                            candidate,
+                            position -> mapLocals[position].match(context));
+            if (other < candidate) {
+                return other;
+            }
+
+            if (candidate == limit) {
+                return limit;
+            }
+            if (mapLocals[candidate].match(context)) {
+                return candidate;
+            }
+
+            // Should not happen, other than differences in case folding, check the rest in order
+            for (int position : positions) {
+                if (position > candidate
+                        && position < limit
+                        && mapLocals[position].match(context)) {
+                    return position;
+                }
+            }
+            return limit;
+        }
+    }
+}
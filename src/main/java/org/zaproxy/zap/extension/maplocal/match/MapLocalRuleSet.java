@@ -0,0 +1,182 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.List;
+import org.zaproxy.zap.extension.httppanel.Message;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * An immutable, versioned, snapshot of the enabled map locals.
+ *
+ * <p>Changes to the map locals are published as a new snapshot, so it can be read by the proxy
+ * threads without locking. The {@link MapLocalRuleFilter} and the {@link MapLocalRuleIndex} are
+ * built in the background, until then the map locals are checked one by one.
+ */
+public final class MapLocalRuleSet {
+
+    public static final MapLocalRuleSet EMPTY =
+            new MapLocalRuleSet(0, List.of(), MapLocalRuleFilter.ACCEPT_ALL, null);
+
+    private final long version;
+    private final List<MapLocalTableEntry> mapLocals;
+    private final MapLocalRuleIndex index;
+    private final MapLocalRuleFilter filter;
+    private final boolean serveLocally;
+
+    private MapLocalRuleSet(
+            long version,
+            List<MapLocalTableEntry> mapLocals,
+            MapLocalRuleFilter filter,
+            MapLocalRuleIndex index) {
+        this.version = version;
+        this.mapLocals = mapLocals;
+        this.filter = filter;
+        this.index = index;
+        this.serveLocally = mapLocals.stream().anyMatch(MapLocalTableEntry::isServeLocally);
+    }
+
+    /**
+     * Constructs a {@code MapLocalRuleSet} with a copy of the given map locals, without filter nor
+     * index.
+     *
+     * @param version the version of the snapshot.
+     * @param mapLocals the enabled map locals, in order of evaluation.
+     */
+    public MapLocalRuleSet(long version, List<MapLocalTableEntry> mapLocals) {
+        this(version, List.copyOf(mapLocals), null, null);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the enabled map locals.
+     *
+     * @return an unmodifiable list with the map locals.
+     */
+    public List<MapLocalTableEntry> getMapLocals() {
+        return mapLocals;
+    }
+
+    public boolean isEmpty() {
+        return mapLocals.isEmpty();
+    }
+
+    /**
+     * Tells whether or not any of the map locals is served without contacting the server.
+     *
+     * @return {@code true} if the requests need to be checked, {@code false} otherwise.
+     */
+    public boolean hasServeLocally() {
+        return serveLocally;
+    }
+
+    /**
+     * Tells whether or not the messages that can not match are rejected without checking the map
+     * locals.
+     *
+     * @return {@code true} if rejected, {@code false} if not possible or not yet built.
+     */
+    public boolean isFiltered() {
+        return filter != null && !filter.isAcceptAll();
+    }
+
+    /**
+     * Tells whether or not the message of the given context might match any of the map locals.
+     *
+     * @param context the context of the message.
+     * @return {@code false} if no map local matches, {@code true} if some might.
+     */
+    public boolean mightMatch(MapLocalMatchContext context) {
+        return filter == null || filter.mightMatch(context);
+    }
+
+    public boolean isIndexed() {
+        return index != null;
+    }
+
+    /**
+     * Returns a snapshot with the same version and map locals, filtered and indexed.
+     *
+     * @return the indexed snapshot, or this one if already indexed.
+     */
+    public MapLocalRuleSet indexed() {
+        if (index != null) {
+            return this;
+        }
+        return new MapLocalRuleSet(
+                version,
+                mapLocals,
+                MapLocalRuleFilter.of(mapLocals),
+                new MapLocalRuleIndex(mapLocals));
+    }
+
+    public MapLocalTableEntry find(Message aMessage, boolean isRequest, boolean onlyIfInScope) {
+        return find(aMessage, isRequest, onlyIfInScope, null);
+    }
+
+    /**
+     * Finds the first map local that matches the given message.
+     *
+     * @param aMessage the message to match.
+     * @param isRequest {@code true} if matching the request, {@code false} if the response.
+     * @param onlyIfInScope {@code true} if only messages in scope should be matched.
+     * @param scopeCache the cache of scope decisions, might be {@code null}.
+     * @return the map local, or {@code null} if none matches.
+     */
+    public MapLocalTableEntry find(
+            Message aMessage,
+            boolean isRequest,
+            boolean onlyIfInScope,
+            MapLocalScopeCache scopeCache) {
+        if (mapLocals.isEmpty()) {
+            return null;
+        }
+        MapLocalMatchContext context =
+                MapLocalMatchContext.of(aMessage, isRequest, onlyIfInScope, scopeCache);
+        if (context == null || !mightMatch(context)) {
+            return null;
+        }
+        return find(context);
+    }
+
+    /**
+     * Finds the first map local that matches the message of the given context.
+     *
+     * @param context the context of the message.
+     * @return the map local, or {@code null} if none matches.
+     */
+    public MapLocalTableEntry find(MapLocalMatchContext context) {
+        if (mapLocals.isEmpty()) {
+            return null;
+        }
+        if (index != null) {
+            return index.find(context);
+        }
+        for (MapLocalTableEntry mapLocal : mapLocals) {
+            if (mapLocal.match(context)) {
+                return mapLocal;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.parosproxy.paros.model.Model;
+
+/**
+ * A bounded cache of the scope decisions, by URI, evicted in least recently used order.
+ *
+ * <p>The scope of the session is evaluated with regular expressions, which is expensive to do for
+ * each message of the same URI. The cache must be cleared when the scope or the session changes,
+ * the decisions evaluated before and stored after it is cleared are discarded.
+ */
+public class MapLocalScopeCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final int maxEntries;
+    private final Predicate<String> scope;
+    private final Map<String, Boolean> decisions;
+
+    /** The number of times cleared, guarded by {@link #decisions}. */
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MapLocalScopeCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructs a {@code MapLocalScopeCache} with the given maximum number of entries.
+     *
+     * @param maxEntries the maximum number of URIs kept.
+     */
+    public MapLocalScopeCache(int maxEntries) {
+        this(maxEntries, uri -> Model.getSingleton().getSession().isInScope(uri));
+    }
+
+    /**
+     * Constructs a {@code MapLocalScopeCache} with the given maximum number of entries and scope.
+     *
+     * @param maxEntries the maximum number of URIs kept.
+     * @param scope the scope, tells whether or not a URI is in scope.
+     */
+    public MapLocalScopeCache(int maxEntries, Predicate<String> scope) {
+        this.maxEntries = maxEntries;
+        this.scope = scope;
+        this.decisions =
+                new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                        return size() > MapLocalScopeCache.this.maxEntries;
+                    }
+                };
+    }
+
+    /**
+     * Tells whether or not the given URI is in scope, evaluating the scope only if not cached.
+     *
+     * @param uri the URI to check.
+     * @return {@code true} if in scope, {@code false} otherwise.
+     */
+    public boolean isInScope(String uri) {
+        long evaluatedGeneration;
+        synchronized (decisions) {
+            Boolean inScope = decisions.get(uri);
+            if (inScope != null) {
+                hits.increment();
+                return inScope;
+            }
+            evaluatedGeneration = generation;
+        }
+        misses.increment();
+        // Evaluated without the lock, a concurrent miss just evaluates it again
+        boolean inScope = scope.test(uri);
+        synchronized (decisions) {
+            if (evaluatedGeneration == generation) {
+                decisions.put(uri, inScope);
+            }
+        }
+        return inScope;
+    }
+
+    /** Clears the cached decisions, should be called when the scope changes. */
+    public void clear() {
+        synchronized (decisions) {
+            generation++;
+            decisions.clear();
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (decisions) {
+            return decisions.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
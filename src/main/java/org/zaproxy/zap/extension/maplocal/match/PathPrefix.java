@@ -0,0 +1,171 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The parsed URL of a {@code prefix} map local, matches the URIs with the same scheme, host and
+ * port whose path starts with the same segments.
+ *
+ * <p>For example, {@code https://example.com/static/} matches {@code
+ * https://example.com/static/app.js} but not {@code https://example.com/statically}. The query of
+ * the URI is not compared.
+ */
+public final class PathPrefix {
+
+    private static final String[] NO_SEGMENTS = {};
+
+    private final String origin;
+    private final String[] segments;
+    private final boolean ignoreCase;
+
+    private PathPrefix(String origin, String[] segments, boolean ignoreCase) {
+        this.origin = origin;
+        this.segments = segments;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Parses the given URL.
+     *
+     * @param url the URL, with scheme, host and, optionally, port and path.
+     * @param ignoreCase {@code true} if the path segments should be compared ignoring case.
+     * @return the prefix, or {@code null} if the URL is not valid or has a query.
+     */
+    public static PathPrefix of(String url, boolean ignoreCase) {
+        URL parsed;
+        try {
+            parsed = new URL(url);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+        if (parsed.getHost().isEmpty() || parsed.getQuery() != null) {
+            return null;
+        }
+        String[] segments = toSegments(parsed.getPath());
+        if (ignoreCase) {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = segments[i].toLowerCase(Locale.ROOT);
+            }
+        }
+        return new PathPrefix(
+                toOrigin(parsed.getProtocol(), parsed.getHost(), parsed.getPort()),
+                segments,
+                ignoreCase);
+    }
+
+    /**
+     * Gets the scheme, host and port, in lower case and with the default port explicit, for
+     * example, {@code https://example.com:443}.
+     *
+     * @return the origin.
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Gets the segments of the path, in lower case if ignoring case.
+     *
+     * @return the segments, must not be modified.
+     */
+    String[] getSegments() {
+        return segments;
+    }
+
+    /**
+     * Gets the number of segments of the path, the segments of a matching URI after them are
+     * mapped into a directory.
+     *
+     * @return the number of segments.
+     */
+    public int getSegmentCount() {
+        return segments.length;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Tells whether or not the URI of the given context is under this prefix.
+     *
+     * @param context the context of the message.
+     * @return {@code true} if the URI matches, {@code false} otherwise.
+     */
+    public boolean matches(MapLocalMatchContext context) {
+        if (!origin.equals(context.getOrigin())) {
+            return false;
+        }
+        String[] uriSegments =
+                ignoreCase ? context.getLowerCasePathSegments() : context.getPathSegments();
+        if (uriSegments.length < segments.length) {
+            return false;
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (!segments[i].equals(uriSegments[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String toOrigin(String scheme, String host, int port) {
+        String lowerCaseScheme = scheme == null ? "" : scheme.toLowerCase(Locale.ROOT);
+        int effectivePort = port;
+        if (effectivePort == -1) {
+            if ("http".equals(lowerCaseScheme)) {
+                effectivePort = 80;
+            } else if ("https".equals(lowerCaseScheme)) {
+                effectivePort = 443;
+            }
+        }
+        return lowerCaseScheme
+                + "://"
+                + (host == null ? "" : host.toLowerCase(Locale.ROOT))
+                + ":"
+                + effectivePort;
+    }
+
+    /** Splits the given path into its non-empty segments. */
+    static String[] toSegments(String path) {
+        if (path == null || path.isEmpty()) {
+            return NO_SEGMENTS;
+        }
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        while (start <= path.length()) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = path.length();
+            }
+            if (end > start) {
+                segments.add(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments.toArray(NO_SEGMENTS);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable radix tree of the path segments of the {@code prefix} map locals, one per origin
+ * (scheme, host and port) and case sensitivity.
+ *
+ * <p>Finding the map locals that match a URI walks its path segments once, so the cost depends on
+ * the depth of the URI, not on the number of map locals.
+ */
+public class PathPrefixTree {
+
+    /** The value returned when none of the prefixes match. */
+    public static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final Map<String, Node> caseSensitive;
+    private final Map<String, Node> ignoreCase;
+
+    private PathPrefixTree(Map<String, Node> caseSensitive, Map<String, Node> ignoreCase) {
+        this.caseSensitive = caseSensitive;
+        this.ignoreCase = ignoreCase;
+    }
+
+    /**
+     * Gets the lowest value, below the given limit, of the prefixes that match the URI of the
+     * given context.
+     *
+     * @param context the context of the message.
+     * @param limit the value to return if none lower matches.
+     * @return the lowest value, or {@code limit} if none lower matches.
+     */
+    public int findLowest(MapLocalMatchContext context, int limit) {
+        int lowest = limit;
+        if (!caseSensitive.isEmpty()) {
+            lowest = find(caseSensitive, context.getOrigin(), context.getPathSegments(), lowest);
+        }
+        if (!ignoreCase.isEmpty()) {
+            lowest =
+                    find(
+                            ignoreCase,
+                            context.getOrigin(),
+                            context.getLowerCasePathSegments(),
+                            lowest);
+        }
+        return lowest;
+    }
+
+    private static int find(Map<String, Node> roots, String origin, String[] segments, int limit) {
+        Node node = roots.get(origin);
+        int lowest = limit;
+        for (int i = 0; node != null; i++) {
+            lowest = Math.min(lowest, node.value);
+            if (i == segments.length || node.children == null) {
+                break;
+            }
+            node = node.children.get(segments[i]);
+        }
+        return lowest;
+    }
+
+    public boolean isEmpty() {
+        return caseSensitive.isEmpty() && ignoreCase.isEmpty();
+    }
+
+    private static class Node {
+
+        private Map<String, Node> children;
+        private int value = NO_MATCH;
+
+        Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, k -> new Node());
+        }
+
+        Node copy() {
+            Node copy = new Node();
+            copy.value = value;
+            if (children != null) {
+                copy.children = copy(children);
+            }
+            return copy;
+        }
+
+        static Map<String, Node> copy(Map<String, Node> nodes) {
+            Map<String, Node> copy = new HashMap<>();
+            nodes.forEach((key, node) -> copy.put(key, node.copy()));
+            return copy;
+        }
+    }
+
+    /** A builder of {@code PathPrefixTree}s. */
+    public static class Builder {
+
+        private final Map<String, Node> caseSensitive = new HashMap<>();
+        private final Map<String, Node> ignoreCase = new HashMap<>();
+
+        /**
+         * Adds the given prefix, keeping the lowest value if already added.
+         *
+         * @param prefix the prefix.
+         * @param value the value of the prefix.
+         * @return this builder.
+         */
+        public Builder add(PathPrefix prefix, int value) {
+            Map<String, Node> roots = prefix.isIgnoreCase() ? ignoreCase : caseSensitive;
+            Node node = roots.computeIfAbsent(prefix.getOrigin(), k -> new Node());
+            for (String segment : prefix.getSegments()) {
+                node = node.child(segment);
+            }
+            node.value = Math.min(node.value, value);
+            return this;
+        }
+
+        /**
+         * Builds a tree with the prefixes added so far.
+         *
+         * <p>The tree does not share the nodes with this builder, it is not changed by the prefixes
+         * added afterwards.
+         *
+         * @return the tree.
+         */
+        public PathPrefixTree build() {
+            return new PathPrefixTree(Node.copy(caseSensitive), Node.copy(ignoreCase));
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts the literals that any text matched by a regular expression must contain.
+ *
+ * <p>The extraction is conservative, anything it does not fully understand (alternations at top
+ * level, groups, classes, most escapes) just ends the current literal, so the literals returned
+ * are always required, but not necessarily all of them. The literals should be compared ignoring
+ * case, the pattern might have flags that change it.
+ */
+public final class RegexLiterals {
+
+    private static final String QUANTIFIERS = "?*+{";
+    private static final String METACHARACTERS = ".^$|()[]{}?*+\\";
+
+    private RegexLiterals() {}
+
+    /**
+     * Gets the required literals of the given regular expression.
+     *
+     * @param regex the regular expression.
+     * @return the literals, never {@code null}. Empty if none could be extracted.
+     */
+    public static List<String> extract(String regex) {
+        if (regex == null || regex.isEmpty() || hasTopLevelAlternation(regex)) {
+            return Collections.emptyList();
+        }
+
+        List<String> literals = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int i = 0;
+        int length = regex.length();
+        while (i < length) {
+            char c = regex.charAt(i);
+            int atomStart = current.length();
+            int next;
+
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    break;
+                }
+                char escaped = regex.charAt(i + 1);
+                if (escaped == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    next = end == -1 ? length : end + 2;
+                    String quoted = regex.substring(i + 2, end == -1 ? length : end);
+                    if (!quoted.isEmpty()) {
+                        // Only the last char is affected by a quantifier
+                        current.append(quoted, 0, quoted.length() - 1);
+                        atomStart = current.length();
+                        current.append(quoted.charAt(quoted.length() - 1));
+                    }
+                } else if (METACHARACTERS.indexOf(escaped) != -1
+                        || escaped == '/'
+                        || escaped == '-'
+                        || escaped == '&'
+                        || escaped == '='
+                        || escaped == ':'
+                        || escaped == '#') {
+                    current.append(escaped);
+                    next = i + 2;
+                } else {
+                    // Classes, anchors, back references, control chars...
+                    flush(current, literals);
+                    i = skipQuantifier(regex, skipEscape(regex, i));
+                    continue;
+                }
+            } else if (c == '(') {
+                if (regex.startsWith("(?", i)
+                        && i + 2 < length
+                        && Character.isLetter(regex.charAt(i + 2))) {
+                    // Inline flags might change how the literals are matched, e.g. comments
+                    return Collections.emptyList();
+                }
+                flush(current, literals);
+                i = skipQuantifier(regex, skipGroup(regex, i));
+                continue;
+            } else if (c == '[') {
+                flush(current, literals);
+                i = skipQuantifier(regex, skipClass(regex, i));
+                continue;
+            } else if (c == '.' || c == '^' || c == '$') {
+                flush(current, literals);
+                i = skipQuantifier(regex, i + 1);
+                continue;
+            } else {
+                current.append(c);
+                next = i + 1;
+            }
+
+            // The atom just added might be optional or repeated
+            if (next < length && QUANTIFIERS.indexOf(regex.charAt(next)) != -1) {
+                boolean required = isRequiredQuantifier(regex, next);
+                if (!required) {
+                    current.setLength(atomStart);
+                }
+                flush(current, literals);
+                next = skipQuantifier(regex, next);
+            }
+            i = next;
+        }
+        flush(current, literals);
+        return literals;
+    }
+
+    /**
+     * Gets the longest required literal of the given regular expression.
+     *
+     * @param regex the regular expression.
+     * @return the longest literal, or an empty string if none.
+     */
+    public static String longest(String regex) {
+        String longest = "";
+        for (String literal : extract(regex)) {
+            if (literal.length() > longest.length()) {
+                longest = literal;
+            }
+        }
+        return longest;
+    }
+
+    private static void flush(StringBuilder current, List<String> literals) {
+        if (current.length() > 0) {
+            literals.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isRequiredQuantifier(String regex, int idx) {
+        char q = regex.charAt(idx);
+        if (q == '+') {
+            return true;
+        }
+        if (q == '{') {
+            int i = idx + 1;
+            while (i < regex.length() && regex.charAt(i) == '0') {
+                i++;
+            }
+            return i < regex.length() && Character.isDigit(regex.charAt(i));
+        }
+        return false;
+    }
+
+    private static int skipQuantifier(String regex, int idx) {
+        int i = idx;
+        if (i >= regex.length()) {
+            return i;
+        }
+        char c = regex.charAt(i);
+        if (c == '{') {
+            int end = regex.indexOf('}', i);
+            i = end == -1 ? regex.length() : end + 1;
+        } else if (c == '?' || c == '*' || c == '+') {
+            i++;
+        } else {
+            return i;
+        }
+        // Lazy or possessive
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips the whole escape at the given index, including the digits of octal, hexadecimal,
+     * Unicode and back reference escapes, or the letter of a control char or property.
+     */
+    private static int skipEscape(String regex, int idx) {
+        int i = idx + 2;
+        int length = regex.length();
+        char escaped = regex.charAt(idx + 1);
+        if (i < length
+                && (regex.charAt(i) == '{' || regex.charAt(i) == '<')
+                && "pPxkNb".indexOf(escaped) != -1) {
+            int end = regex.indexOf(regex.charAt(i) == '{' ? '}' : '>', i);
+            return end == -1 ? length : end + 1;
+        }
+        switch (escaped) {
+            case 'u':
+                return skipDigits(regex, i, 4, 16);
+            case 'x':
+                return skipDigits(regex, i, 2, 16);
+            case '0':
+                return skipDigits(regex, i, i < length && regex.charAt(i) <= '3' ? 3 : 2, 8);
+            case 'c':
+            case 'p':
+            case 'P':
+                return Math.min(i + 1, length);
+            default:
+                if (escaped >= '1' && escaped <= '9') {
+                    // Back reference, the following digits might be part of it
+                    return skipDigits(regex, i, Integer.MAX_VALUE, 10);
+                }
+                return i;
+        }
+    }
+
+    private static int skipDigits(String regex, int idx, int max, int radix) {
+        int i = idx;
+        while (i < regex.length()
+                && i - idx < max
+                && Character.digit(regex.charAt(i), radix) != -1) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Skips a char, or the whole escape (including quotes) at the given index. */
+    private static int skipChar(String regex, int idx) {
+        if (regex.charAt(idx) != '\\') {
+            return idx + 1;
+        }
+        if (regex.startsWith("Q", idx + 1)) {
+            int end = regex.indexOf("\\E", idx + 2);
+            return end == -1 ? regex.length() : end + 2;
+        }
+        return idx + 2;
+    }
+
+    private static int skipGroup(String regex, int idx) {
+        int depth = 0;
+        int i = idx;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipChar(regex, i);
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+    private static int skipClass(String regex, int idx) {
+        int i = idx + 1;
+        // A leading ']' (or '^]') is a literal
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        int depth = 1;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipChar(regex, i);
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return regex.length();
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int depth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i = skipChar(regex, i);
+                continue;
+            }
+            if (c == '[') {
+                i = skipClass(regex, i);
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                return true;
+            }
+            i++;
+        }
+        return false;
+    }
+}
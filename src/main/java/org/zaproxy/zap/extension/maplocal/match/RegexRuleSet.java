@@ -0,0 +1,99 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * A set of regular expressions with a literal prefilter.
+ *
+ * <p>The longest required literal of each regular expression (see {@link RegexLiterals}) is
+ * compiled into a single {@link AhoCorasickAutomaton}, one pass over the text tells which
+ * expressions might match, the others are skipped without running their matcher.
+ */
+public class RegexRuleSet {
+
+    /** The minimum length of a literal for it to be used, shorter ones filter too little. */
+    private static final int MIN_LITERAL_LENGTH = 3;
+
+    private final int[] positions;
+    private final BitSet unfiltered;
+    private final AhoCorasickAutomaton literals;
+
+    /**
+     * Constructs a {@code RegexRuleSet}.
+     *
+     * @param positions the positions of the rules, in ascending order.
+     * @param patterns the patterns of the rules, parallel to {@code positions}. A {@code null}
+     *     pattern is never filtered.
+     */
+    public RegexRuleSet(int[] positions, List<Pattern> patterns) {
+        this.positions = positions;
+        this.unfiltered = new BitSet(positions.length);
+
+        AhoCorasickAutomaton.Builder builder = new AhoCorasickAutomaton.Builder(true);
+        for (int i = 0; i < positions.length; i++) {
+            Pattern pattern = patterns.get(i);
+            String literal = pattern == null ? "" : RegexLiterals.longest(pattern.pattern());
+            if (literal.length() < MIN_LITERAL_LENGTH) {
+                unfiltered.set(i);
+            } else {
+                builder.add(literal, i);
+            }
+        }
+        literals = builder.isEmpty() ? null : builder.build();
+    }
+
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    /**
+     * Gets the position of the first rule, below the given limit, that might match the text,
+     * according to the prefilter, and that is accepted by the given matcher.
+     *
+     * @param text the text to match.
+     * @param limit the (exclusive) upper bound of the positions.
+     * @param matcher the full matcher of the rules, called with the positions.
+     * @return the position of the rule, or {@code limit} if none.
+     */
+    public int find(String text, int limit, IntPredicate matcher) {
+        if (positions.length == 0 || positions[0] >= limit) {
+            return limit;
+        }
+
+        BitSet candidates = (BitSet) unfiltered.clone();
+        if (literals != null) {
+            literals.findAll(text, candidates);
+        }
+
+        for (int i = candidates.nextSetBit(0);
+                i >= 0 && positions[i] < limit;
+                i = candidates.nextSetBit(i + 1)) {
+            if (matcher.test(positions[i])) {
+                return positions[i];
+            }
+        }
+        return limit;
+    }
+}
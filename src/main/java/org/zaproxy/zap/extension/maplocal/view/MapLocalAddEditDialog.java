@@ -31,6 +31,8 @@ import java.util.regex.Pattern;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import org.parosproxy.paros.Constant;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentType;
+import org.zaproxy.zap.extension.maplocal.match.PathPrefix;
 import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry.Match;
 import org.zaproxy.zap.view.LayoutHelper;
 import org.zaproxy.zap.view.StandardFieldsDialog;
@@ -44,6 +46,8 @@ public class MapLocalAddEditDialog extends StandardFieldsDialog {
     private static final String FIELD_QUERY = "mapLocal.query.label";
     private static final String FIELD_IGNORECASE = "mapLocal.ignorecase.label";
     private static final String FIELD_LOCAL_PATH = "mapLocal.localpath.label";
+    private static final String FIELD_SERVE_LOCALLY = "mapLocal.servelocally.label";
+    private static final String FIELD_CONTENT_TYPE = "mapLocal.contenttype.label";
 
     private JButton browseButton = null;
 
@@ -79,6 +83,10 @@ public class MapLocalAddEditDialog extends StandardFieldsDialog {
         this.addTextField(FIELD_QUERY, mapLocal.getQuery());
         this.addCheckBoxField(FIELD_IGNORECASE, mapLocal.isIgnoreCase());
         this.addTextField(FIELD_LOCAL_PATH, mapLocal.getLocalPath().toString());
+        this.addCheckBoxField(FIELD_SERVE_LOCALLY, mapLocal.isServeLocally());
+        this.addTextField(
+                FIELD_CONTENT_TYPE,
+                mapLocal.getContentType() != null ? mapLocal.getContentType() : "");
 
         this.addPadding();
         this.addBrowseButtonToPane();
@@ -121,6 +129,8 @@ public class MapLocalAddEditDialog extends StandardFieldsDialog {
                         this.strToMatch(this.getStringValue(FIELD_MATCH)),
                         this.getBoolValue(FIELD_IGNORECASE),
                         this.strToPath(this.getStringValue(FIELD_LOCAL_PATH)));
+        mapLocalFromFields.setServeLocally(this.getBoolValue(FIELD_SERVE_LOCALLY));
+        mapLocalFromFields.setContentType(this.getStringValue(FIELD_CONTENT_TYPE));
 
         if (add) {
             mapLocalUiManager.addMapLocal(mapLocalFromFields);
@@ -163,16 +173,26 @@ public class MapLocalAddEditDialog extends StandardFieldsDialog {
                 return Constant.messages.getString("mapLocal.error.regex");
             }
         }
+        if (MapLocalTableEntry.Match.prefix.equals(
+                        this.strToMatch(this.getStringValue(FIELD_MATCH)))
+                && PathPrefix.of(urlString, false) == null) {
+            return Constant.messages.getString("mapLocal.error.prefix");
+        }
         if (urlString.contains("#")
                 && MapLocalTableEntry.Match.contains.equals(
                         this.strToMatch(this.getStringValue(FIELD_MATCH)))) {
             return Constant.messages.getString("mapLocal.warn.urlfragment");
         }
 
-        return validateLocalPath();
+        if (!this.isEmptyField(FIELD_CONTENT_TYPE)
+                && !MapLocalContentType.isValid(this.getStringValue(FIELD_CONTENT_TYPE))) {
+            return Constant.messages.getString("mapLocal.error.contenttype");
+        }
+
+        return validateLocalPath(this.strToMatch(this.getStringValue(FIELD_MATCH)));
     }
 
-    private String validateLocalPath() {
+    private String validateLocalPath(Match match) {
         if (this.isEmptyField(FIELD_LOCAL_PATH)) {
             return Constant.messages.getString("mapLocal.error.nolocalpath");
         } else {
@@ -181,6 +201,9 @@ public class MapLocalAddEditDialog extends StandardFieldsDialog {
                 if (!Files.isReadable(path)) {
                     return Constant.messages.getString("mapLocal.error.notreadable");
                 }
+                if (Files.isDirectory(path) && !MapLocalTableEntry.Match.prefix.equals(match)) {
+                    return Constant.messages.getString("mapLocal.error.directory");
+                }
             } catch (InvalidPathException ex) {
                 return Constant.messages.getString("mapLocal.error.invalidlocalpath");
             } catch (SecurityException ex) {
@@ -198,6 +221,7 @@ public class MapLocalAddEditDialog extends StandardFieldsDialog {
     public void browsePressed() {
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("choose file");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
         int result = fileChooser.showOpenDialog(MapLocalAddEditDialog.this);
         if (result == JFileChooser.APPROVE_OPTION) {
             this.setFieldValue(FIELD_LOCAL_PATH, fileChooser.getSelectedFile().getPath());
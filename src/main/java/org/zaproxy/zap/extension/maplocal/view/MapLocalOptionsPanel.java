@@ -0,0 +1,183 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.view;
+
+import java.awt.GridBagLayout;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import org.parosproxy.paros.Constant;
+import org.parosproxy.paros.model.OptionsParam;
+import org.parosproxy.paros.view.AbstractParamPanel;
+import org.zaproxy.zap.extension.maplocal.MapLocalParam;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.utils.ZapNumberSpinner;
+import org.zaproxy.zap.utils.ZapTextField;
+import org.zaproxy.zap.view.LayoutHelper;
+
+@SuppressWarnings("serial")
+public class MapLocalOptionsPanel extends AbstractParamPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    private final MapLocalContentCache contentCache;
+
+    private ZapNumberSpinner cacheMaxSizeSpinner;
+    private ZapNumberSpinner largeFileThresholdSpinner;
+    private JCheckBox watchFilesCheckBox;
+    private JLabel cacheStatsLabel;
+    private ZapTextField indexFileTextField;
+
+    public MapLocalOptionsPanel(MapLocalContentCache contentCache) {
+        super();
+        this.contentCache = contentCache;
+
+        setName(Constant.messages.getString("mapLocal.options.title"));
+        setLayout(new GridBagLayout());
+
+        JPanel cachePanel = new JPanel(new GridBagLayout());
+        cachePanel.setBorder(
+                BorderFactory.createTitledBorder(
+                        Constant.messages.getString("mapLocal.options.cache.title")));
+
+        int y = 0;
+        cachePanel.add(
+                new JLabel(Constant.messages.getString("mapLocal.options.cache.maxsize.label")),
+                LayoutHelper.getGBC(0, y, 1, 0.5D));
+        cachePanel.add(getCacheMaxSizeSpinner(), LayoutHelper.getGBC(1, y, 1, 0.5D));
+
+        y++;
+        cachePanel.add(
+                new JLabel(
+                        Constant.messages.getString(
+                                "mapLocal.options.cache.largefilethreshold.label")),
+                LayoutHelper.getGBC(0, y, 1, 0.5D));
+        cachePanel.add(getLargeFileThresholdSpinner(), LayoutHelper.getGBC(1, y, 1, 0.5D));
+
+        y++;
+        cachePanel.add(getWatchFilesCheckBox(), LayoutHelper.getGBC(0, y, 2, 1.0D));
+
+        y++;
+        cachePanel.add(getCacheStatsLabel(), LayoutHelper.getGBC(0, y, 2, 1.0D));
+
+        y++;
+        JButton clearButton =
+                new JButton(Constant.messages.getString("mapLocal.options.cache.clear"));
+        clearButton.addActionListener(
+                e -> {
+                    contentCache.clear();
+                    updateCacheStats();
+                });
+        cachePanel.add(clearButton, LayoutHelper.getGBC(0, y, 1, 0.0D));
+
+        add(cachePanel, LayoutHelper.getGBC(0, 0, 1, 1.0D));
+
+        JPanel directoryPanel = new JPanel(new GridBagLayout());
+        directoryPanel.setBorder(
+                BorderFactory.createTitledBorder(
+                        Constant.messages.getString("mapLocal.options.directory.title")));
+        directoryPanel.add(
+                new JLabel(Constant.messages.getString("mapLocal.options.directory.index.label")),
+                LayoutHelper.getGBC(0, 0, 1, 0.5D));
+        directoryPanel.add(getIndexFileTextField(), LayoutHelper.getGBC(1, 0, 1, 0.5D));
+
+        add(directoryPanel, LayoutHelper.getGBC(0, 1, 1, 1.0D));
+        add(new JLabel(), LayoutHelper.getGBC(0, 2, 1, 1.0D, 1.0D));
+    }
+
+    private ZapNumberSpinner getCacheMaxSizeSpinner() {
+        if (cacheMaxSizeSpinner == null) {
+            cacheMaxSizeSpinner =
+                    new ZapNumberSpinner(
+                            0, MapLocalParam.DEFAULT_CACHE_MAX_SIZE, Integer.MAX_VALUE);
+        }
+        return cacheMaxSizeSpinner;
+    }
+
+    private ZapNumberSpinner getLargeFileThresholdSpinner() {
+        if (largeFileThresholdSpinner == null) {
+            largeFileThresholdSpinner =
+                    new ZapNumberSpinner(
+                            0, MapLocalParam.DEFAULT_LARGE_FILE_THRESHOLD, Integer.MAX_VALUE);
+        }
+        return largeFileThresholdSpinner;
+    }
+
+    private JCheckBox getWatchFilesCheckBox() {
+        if (watchFilesCheckBox == null) {
+            watchFilesCheckBox =
+                    new JCheckBox(Constant.messages.getString("mapLocal.options.cache.watch"));
+        }
+        return watchFilesCheckBox;
+    }
+
+    private ZapTextField getIndexFileTextField() {
+        if (indexFileTextField == null) {
+            indexFileTextField = new ZapTextField();
+        }
+        return indexFileTextField;
+    }
+
+    private JLabel getCacheStatsLabel() {
+        if (cacheStatsLabel == null) {
+            cacheStatsLabel = new JLabel();
+        }
+        return cacheStatsLabel;
+    }
+
+    private void updateCacheStats() {
+        getCacheStatsLabel()
+                .setText(
+                        Constant.messages.getString(
+                                "mapLocal.options.cache.stats",
+                                contentCache.getHits(),
+                                contentCache.getMisses(),
+                                contentCache.getEvictions(),
+                                contentCache.getEntryCount(),
+                                contentCache.getSize() / 1024));
+    }
+
+    @Override
+    public void initParam(Object obj) {
+        MapLocalParam param = ((OptionsParam) obj).getParamSet(MapLocalParam.class);
+        getCacheMaxSizeSpinner().setValue(param.getCacheMaxSize());
+        getLargeFileThresholdSpinner().setValue(param.getLargeFileThreshold());
+        getWatchFilesCheckBox().setSelected(param.isWatchFiles());
+        getIndexFileTextField().setText(param.getIndexFile());
+        getIndexFileTextField().discardAllEdits();
+        updateCacheStats();
+    }
+
+    @Override
+    public void saveParam(Object obj) throws Exception {
+        MapLocalParam param = ((OptionsParam) obj).getParamSet(MapLocalParam.class);
+        param.setCacheMaxSize(getCacheMaxSizeSpinner().getValue());
+        param.setLargeFileThreshold(getLargeFileThresholdSpinner().getValue());
+        param.setWatchFiles(getWatchFilesCheckBox().isSelected());
+        param.setIndexFile(getIndexFileTextField().getText());
+    }
+
+    @Override
+    public String getHelpIndex() {
+        return "maplocal.options";
+    }
+}
@@ -24,6 +24,8 @@ import java.awt.EventQueue;
 import java.awt.GridBagConstraints;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 import javax.swing.ImageIcon;
@@ -233,6 +235,57 @@ public class MapLocalStatusPanel extends AbstractPanel {
         }
     }
 
+    /**
+     * Adds the given map locals in one batch, for example, when loading a session.
+     *
+     * @param mapLocals the map locals to add.
+     */
+    public void addMapLocals(final List<MapLocalTableEntry> mapLocals) {
+        runInEdt(() -> model.addMapLocals(mapLocals));
+    }
+
+    /**
+     * Removes the given map locals in one batch.
+     *
+     * @param mapLocals the map locals to remove.
+     */
+    public void removeMapLocals(final List<MapLocalTableEntry> mapLocals) {
+        runInEdt(() -> model.removeMapLocals(mapLocals));
+    }
+
+    /**
+     * Enables or disables the given map locals in one batch.
+     *
+     * @param mapLocals the map locals to change.
+     * @param enabled {@code true} to enable, {@code false} to disable.
+     */
+    public void setMapLocalsEnabled(final List<MapLocalTableEntry> mapLocals, boolean enabled) {
+        runInEdt(() -> model.setEnabled(mapLocals, enabled));
+    }
+
+    /**
+     * Gets the map locals of the table.
+     *
+     * @return a new list with the map locals, in order of evaluation.
+     */
+    public List<MapLocalTableEntry> getMapLocalsList() {
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+        runInEdt(() -> mapLocals.addAll(model.getMapLocalsList()));
+        return mapLocals;
+    }
+
+    private static void runInEdt(Runnable runnable) {
+        if (EventQueue.isDispatchThread()) {
+            runnable.run();
+            return;
+        }
+        try {
+            EventQueue.invokeAndWait(runnable);
+        } catch (Exception e) {
+            LOGGER.warn(e.getMessage(), e);
+        }
+    }
+
     private void editMapLocalModel(MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
         model.editMapLocal(oldMapLocal, newMapLocal);
         selectRowAndEnsureVisible(model.getLastAffectedRow());
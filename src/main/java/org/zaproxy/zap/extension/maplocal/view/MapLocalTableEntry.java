@@ -22,14 +22,16 @@ package org.zaproxy.zap.extension.maplocal.view;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.parosproxy.paros.Constant;
-import org.parosproxy.paros.model.Model;
-import org.parosproxy.paros.network.HttpMessage;
 import org.zaproxy.zap.extension.httppanel.Message;
+import org.zaproxy.zap.extension.maplocal.match.MapLocalMatchContext;
+import org.zaproxy.zap.extension.maplocal.match.PathPrefix;
 import org.zaproxy.zap.model.SessionStructure;
 
 public class MapLocalTableEntry {
@@ -38,18 +40,24 @@ public class MapLocalTableEntry {
 
     public enum Match {
         contains,
-        regex
+        regex,
+        prefix
     }
 
     private static final Logger LOGGER = LogManager.getLogger(MapLocalTableEntry.class);
 
     private String string;
+    private volatile String lowerCaseString;
     private URL url;
     private Pattern pattern;
+    private PathPrefix pathPrefix;
     private Match match;
     private boolean ignoreCase;
     private Path localPath;
-    private int mapLocalId = -1;
+    private boolean serveLocally;
+    private String contentType;
+    private volatile int mapLocalId = -1;
+    private final LongAdder hits = new LongAdder();
 
     public MapLocalTableEntry(String string, Match match, boolean ignoreCase, Path localPath) {
         super();
@@ -101,6 +109,7 @@ public class MapLocalTableEntry {
 
     public void setString(String str) {
         this.string = str;
+        this.lowerCaseString = null;
         compilePattern();
         getUrlFromString();
     }
@@ -109,6 +118,15 @@ public class MapLocalTableEntry {
         return pattern;
     }
 
+    /**
+     * Gets the parsed URL of a {@code prefix} map local.
+     *
+     * @return the prefix, {@code null} if not a {@code prefix} map local or the URL is not valid.
+     */
+    public PathPrefix getPathPrefix() {
+        return pathPrefix;
+    }
+
     public void setPattern(Pattern pattern) {
         this.pattern = pattern;
     }
@@ -147,53 +165,125 @@ public class MapLocalTableEntry {
         this.localPath = localPath;
     }
 
-    public boolean match(Message aMessage, boolean isRequest, boolean onlyIfInScope) {
-        if (aMessage instanceof HttpMessage && !isRequest) {
-            HttpMessage message = (HttpMessage) aMessage;
+    /**
+     * Tells whether or not the response is created from the local file, without contacting the
+     * server. Otherwise the body of the response from the server is replaced.
+     *
+     * @return {@code true} if served without contacting the server, {@code false} otherwise.
+     */
+    public boolean isServeLocally() {
+        return serveLocally;
+    }
 
-            try {
-                String uri = message.getRequestHeader().getURI().toString();
+    public void setServeLocally(boolean serveLocally) {
+        this.serveLocally = serveLocally;
+    }
 
-                if (onlyIfInScope) {
-                    if (!Model.getSingleton().getSession().isInScope(uri)) {
-                        return false;
-                    }
-                }
+    /**
+     * Gets the Content-Type of the responses, overriding the one inferred from the local file.
+     *
+     * @return the Content-Type, {@code null} if inferred.
+     */
+    public String getContentType() {
+        return contentType;
+    }
 
-                boolean res;
-                if (Match.contains.equals(this.match)) {
-                    if (ignoreCase) {
-                        res = uri.toLowerCase().contains(string.toLowerCase());
-                    } else {
-                        res = uri.contains(string);
-                    }
+    /**
+     * Sets the Content-Type of the responses.
+     *
+     * @param contentType the Content-Type, {@code null} or blank to infer it from the local file.
+     */
+    public void setContentType(String contentType) {
+        this.contentType =
+                contentType == null || contentType.isBlank() ? null : contentType.trim();
+    }
+
+    /** Records that a response was mapped by this map local. */
+    public void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * Gets the number of responses mapped by this map local.
+     *
+     * @return the number of responses.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public boolean match(Message aMessage, boolean isRequest, boolean onlyIfInScope) {
+        MapLocalMatchContext context = MapLocalMatchContext.of(aMessage, isRequest, onlyIfInScope);
+        return context != null && match(context);
+    }
 
+    /**
+     * Tells whether or not this map local matches the message of the given context.
+     *
+     * @param context the context of the message, shared by all the map locals checked.
+     * @return {@code true} if the message matches, {@code false} otherwise.
+     */
+    public boolean match(MapLocalMatchContext context) {
+        try {
+            if (!context.isInScope()) {
+                return false;
+            }
+
+            boolean res;
+            if (Match.contains.equals(this.match)) {
+                if (ignoreCase) {
+                    res = context.getLowerCaseUri().contains(getLowerCaseString());
                 } else {
-                    res = pattern.matcher(uri).find();
+                    res = context.getUri().contains(string);
                 }
-                return res;
-            } catch (Exception e) {
-                LOGGER.warn(e.getMessage(), e);
+
+            } else if (Match.prefix.equals(this.match)) {
+                res = pathPrefix != null && pathPrefix.matches(context);
+            } else {
+                res = pattern.matcher(context.getUri()).find();
             }
+            return res;
+        } catch (Exception e) {
+            LOGGER.warn(e.getMessage(), e);
         }
         return false;
     }
 
+    private String getLowerCaseString() {
+        String lower = lowerCaseString;
+        if (lower == null) {
+            lower = string.toLowerCase();
+            lowerCaseString = lower;
+        }
+        return lower;
+    }
+
     private void compilePattern() {
+        pathPrefix = Match.prefix.equals(match) ? PathPrefix.of(string, ignoreCase) : null;
         try {
-            if (ignoreCase) {
-                pattern =
-                        Pattern.compile(
-                                SessionStructure.regexEscape(string), Pattern.CASE_INSENSITIVE);
-            } else {
-                pattern = Pattern.compile(SessionStructure.regexEscape(string));
-            }
+            pattern = compileRegex(string, ignoreCase);
         } catch (Exception e) {
             // This wont be a problem if its a 'contains' match
             LOGGER.debug("Potentially invalid regex", e);
         }
     }
 
+    /**
+     * Compiles the given URL into the pattern of a map local, as done for the map locals.
+     *
+     * @param string the URL.
+     * @param ignoreCase {@code true} if the case should be ignored, {@code false} otherwise.
+     * @return the pattern.
+     * @throws java.util.regex.PatternSyntaxException if the URL is not a valid regular expression.
+     */
+    public static Pattern compileRegex(String string, boolean ignoreCase) {
+        String regex = SessionStructure.regexEscape(string);
+        if (ignoreCase) {
+            return Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        }
+        return Pattern.compile(regex);
+    }
+
     public String getDisplayMessage() {
         return Constant.messages.getString("mapLocal.match." + match.name())
                 + ": "
@@ -216,7 +306,9 @@ public class MapLocalTableEntry {
         return this.getString().equals(mapLocal.getString())
                 && this.getMatch().equals(mapLocal.getMatch())
                 && this.isIgnoreCase() == mapLocal.isIgnoreCase()
-                && this.getLocalPath().equals(mapLocal.getLocalPath());
+                && this.getLocalPath().equals(mapLocal.getLocalPath())
+                && this.isServeLocally() == mapLocal.isServeLocally()
+                && Objects.equals(this.getContentType(), mapLocal.getContentType());
     }
 
     @Override
@@ -227,6 +319,8 @@ public class MapLocalTableEntry {
                 .append(match)
                 .append(ignoreCase)
                 .append(localPath)
+                .append(serveLocally)
+                .append(contentType)
                 .toHashCode();
     }
 }
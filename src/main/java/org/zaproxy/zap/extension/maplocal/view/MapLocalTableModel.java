@@ -20,10 +20,13 @@
 package org.zaproxy.zap.extension.maplocal.view;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import javax.swing.table.AbstractTableModel;
 import org.parosproxy.paros.Constant;
 
@@ -41,8 +44,12 @@ public class MapLocalTableModel extends AbstractTableModel {
     };
 
     private List<MapLocalTableEntry> mapLocals;
+
+    /** The enabled map locals, in the order they were added or enabled. */
     private List<MapLocalTableEntry> mapLocalsEnabled;
 
+    private Consumer<List<MapLocalTableEntry>> enabledMapLocalsListener;
+
     private Map<MapLocalTableEntry, Integer> mapLocalToRowMapping;
 
     private int lastAffectedRow;
@@ -62,8 +69,30 @@ public class MapLocalTableModel extends AbstractTableModel {
         return mapLocals;
     }
 
+    /**
+     * Gets the map locals that are enabled, in the order they were added or enabled, a map local
+     * enabled again (or edited) goes after the others.
+     *
+     * @return a new list with the enabled map locals.
+     */
     public List<MapLocalTableEntry> getMapLocalsEnabledList() {
-        return mapLocalsEnabled;
+        return new ArrayList<>(mapLocalsEnabled);
+    }
+
+    /**
+     * Sets the listener notified with the enabled map locals, once per change.
+     *
+     * @param listener the listener, might be {@code null}.
+     */
+    public void setEnabledMapLocalsListener(Consumer<List<MapLocalTableEntry>> listener) {
+        this.enabledMapLocalsListener = listener;
+        notifyEnabledMapLocalsChanged();
+    }
+
+    private void notifyEnabledMapLocalsChanged() {
+        if (enabledMapLocalsListener != null) {
+            enabledMapLocalsListener.accept(getMapLocalsEnabledList());
+        }
     }
 
     @Override
@@ -101,16 +130,41 @@ public class MapLocalTableModel extends AbstractTableModel {
 
     public void addMapLocal(MapLocalTableEntry mapLocal) {
         mapLocals.add(mapLocal);
+        if (mapLocal.isEnabled()) {
+            mapLocalsEnabled.add(mapLocal);
+            notifyEnabledMapLocalsChanged();
+        }
         this.fireTableRowsInserted(mapLocals.size() - 1, mapLocals.size() - 1);
 
         rebuildMapLocalToRowMapping();
         lastAffectedRow = mapLocalToRowMapping.get(mapLocal);
+    }
 
-        if (mapLocal.isEnabled()) {
-            synchronized (mapLocalsEnabled) {
+    /**
+     * Adds the given map locals, notifying the listeners once.
+     *
+     * @param newMapLocals the map locals to add.
+     */
+    public void addMapLocals(Collection<MapLocalTableEntry> newMapLocals) {
+        if (newMapLocals.isEmpty()) {
+            return;
+        }
+        int firstRow = mapLocals.size();
+        boolean anyEnabled = false;
+        for (MapLocalTableEntry mapLocal : newMapLocals) {
+            mapLocalToRowMapping.put(mapLocal, mapLocals.size());
+            mapLocals.add(mapLocal);
+            if (mapLocal.isEnabled()) {
                 mapLocalsEnabled.add(mapLocal);
+                anyEnabled = true;
             }
         }
+        if (anyEnabled) {
+            notifyEnabledMapLocalsChanged();
+        }
+        this.fireTableRowsInserted(firstRow, mapLocals.size() - 1);
+
+        lastAffectedRow = mapLocals.size() - 1;
     }
 
     public void editMapLocal(MapLocalTableEntry oldMapLocal, MapLocalTableEntry newMapLocal) {
@@ -120,19 +174,18 @@ public class MapLocalTableModel extends AbstractTableModel {
 
         mapLocalToRowMapping.put(newMapLocal, 0);
         mapLocals.add(newMapLocal);
+        removeEnabled(oldMapLocal);
+        if (newMapLocal.isEnabled()) {
+            mapLocalsEnabled.add(newMapLocal);
+        }
+        // Once, with both changes
+        if (oldMapLocal.isEnabled() || newMapLocal.isEnabled()) {
+            notifyEnabledMapLocalsChanged();
+        }
         this.fireTableRowsInserted(mapLocals.size() - 1, mapLocals.size() - 1);
 
         rebuildMapLocalToRowMapping();
         lastAffectedRow = mapLocalToRowMapping.get(newMapLocal);
-
-        synchronized (mapLocalsEnabled) {
-            if (oldMapLocal.isEnabled()) {
-                mapLocalsEnabled.remove(oldMapLocal);
-            }
-            if (newMapLocal.isEnabled()) {
-                mapLocalsEnabled.add(newMapLocal);
-            }
-        }
     }
 
     public void removeMapLocal(MapLocalTableEntry mapLocal) {
@@ -140,16 +193,59 @@ public class MapLocalTableModel extends AbstractTableModel {
 
         if (row != null) {
             mapLocals.remove(mapLocal);
+            if (removeEnabled(mapLocal)) {
+                notifyEnabledMapLocalsChanged();
+            }
             this.fireTableRowsDeleted(row, row);
 
             rebuildMapLocalToRowMapping();
+        }
+    }
 
-            synchronized (mapLocalsEnabled) {
-                if (mapLocal.isEnabled()) {
-                    mapLocalsEnabled.remove(mapLocal);
-                }
+    /**
+     * Removes the given map locals, notifying the listeners once.
+     *
+     * @param oldMapLocals the map locals to remove.
+     */
+    public void removeMapLocals(Collection<MapLocalTableEntry> oldMapLocals) {
+        Map<MapLocalTableEntry, Boolean> removed = new IdentityHashMap<>();
+        for (MapLocalTableEntry mapLocal : oldMapLocals) {
+            if (mapLocalToRowMapping.remove(mapLocal) != null) {
+                removed.put(mapLocal, Boolean.TRUE);
             }
         }
+        if (removed.isEmpty()) {
+            return;
+        }
+        mapLocals.removeIf(removed::containsKey);
+        if (mapLocalsEnabled.removeIf(removed::containsKey)) {
+            notifyEnabledMapLocalsChanged();
+        }
+        this.fireTableDataChanged();
+
+        rebuildMapLocalToRowMapping();
+    }
+
+    /**
+     * Enables or disables the given map locals, notifying the listeners once.
+     *
+     * @param changedMapLocals the map locals to change.
+     * @param enabled {@code true} to enable, {@code false} to disable.
+     */
+    public void setEnabled(Collection<MapLocalTableEntry> changedMapLocals, boolean enabled) {
+        boolean changed = false;
+        for (MapLocalTableEntry mapLocal : changedMapLocals) {
+            Integer row = mapLocalToRowMapping.get(mapLocal);
+            if (row != null && mapLocal.isEnabled() != enabled) {
+                mapLocal.setEnabled(enabled);
+                setEnabledOrder(mapLocal);
+                this.fireTableCellUpdated(row, 0);
+                changed = true;
+            }
+        }
+        if (changed) {
+            notifyEnabledMapLocalsChanged();
+        }
     }
 
     public int getLastAffectedRow() {
@@ -165,19 +261,15 @@ public class MapLocalTableModel extends AbstractTableModel {
     public void setValueAt(Object value, int row, int column) {
         if (column == 0) {
             if (value instanceof Boolean) {
-                boolean isEnabled = mapLocals.get(row).isEnabled();
-                mapLocals.get(row).setEnabled((Boolean) value);
-                this.fireTableCellUpdated(row, column);
+                MapLocalTableEntry mapLocal = mapLocals.get(row);
+                boolean isEnabled = mapLocal.isEnabled();
+                mapLocal.setEnabled((Boolean) value);
 
-                if (isEnabled) {
-                    synchronized (mapLocalsEnabled) {
-                        mapLocalsEnabled.remove(mapLocals.get(row));
-                    }
-                } else {
-                    synchronized (mapLocalsEnabled) {
-                        mapLocalsEnabled.add(mapLocals.get(row));
-                    }
+                if (isEnabled != (Boolean) value) {
+                    setEnabledOrder(mapLocal);
+                    notifyEnabledMapLocalsChanged();
                 }
+                this.fireTableCellUpdated(row, column);
             }
         }
     }
@@ -190,6 +282,23 @@ public class MapLocalTableModel extends AbstractTableModel {
         return String.class;
     }
 
+    private void setEnabledOrder(MapLocalTableEntry mapLocal) {
+        removeEnabled(mapLocal);
+        if (mapLocal.isEnabled()) {
+            mapLocalsEnabled.add(mapLocal);
+        }
+    }
+
+    private boolean removeEnabled(MapLocalTableEntry mapLocal) {
+        for (int i = 0; i < mapLocalsEnabled.size(); i++) {
+            if (mapLocalsEnabled.get(i) == mapLocal) {
+                mapLocalsEnabled.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void rebuildMapLocalToRowMapping() {
         mapLocalToRowMapping.clear();
         int i = 0;
@@ -203,6 +312,7 @@ public class MapLocalTableModel extends AbstractTableModel {
     public void clear() {
         mapLocals.clear();
         mapLocalsEnabled.clear();
+        notifyEnabledMapLocalsChanged();
         mapLocalToRowMapping.clear();
 
         if (lastAffectedRow >= 0) {
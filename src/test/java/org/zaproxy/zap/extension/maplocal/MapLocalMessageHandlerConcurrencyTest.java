@@ -0,0 +1,132 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.parosproxy.paros.network.HttpHeader;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/**
+ * Stress test of {@link MapLocalMessageHandler}, many proxy threads mapping messages at once, each
+ * message must get the content of its own file.
+ *
+ * <p>The throughput by number of threads is measured by {@code MapLocalMessageHandlerBenchmark}.
+ */
+class MapLocalMessageHandlerConcurrencyTest {
+
+    private static final int FILES = 64;
+    private static final int THREADS = 16;
+    private static final int MESSAGES_PER_THREAD = 2000;
+
+    @TempDir Path dir;
+
+    private MapLocalMessageHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            Path file = dir.resolve("file" + i + ".txt");
+            Files.write(file, content(i));
+            mapLocals.add(
+                    new MapLocalTableEntry(
+                            url(i), MapLocalTableEntry.Match.contains, false, file));
+        }
+        handler = new MapLocalMessageHandler(new MapLocalContentCache(16));
+        handler.setEnabledMapLocals(mapLocals);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void shouldMapConcurrentMessagesEachWithItsOwnFile() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            results.add(
+                    executor.submit(
+                            () -> {
+                                start.await();
+                                for (int m = 0; m < MESSAGES_PER_THREAD; m++) {
+                                    mapAndVerify((seed * 31 + m) % FILES);
+                                }
+                                return null;
+                            }));
+        }
+        start.countDown();
+        try {
+            for (Future<?> result : results) {
+                // Rethrows the assertion errors of the threads
+                result.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void mapAndVerify(int file) throws Exception {
+        HttpMessage msg =
+                new HttpMessage(
+                        new HttpRequestHeader(
+                                "GET " + url(file) + " HTTP/1.1\r\nHost: example.com\r\n\r\n"));
+        msg.setResponseHeader("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n");
+        msg.setResponseBody("server");
+
+        handler.handleMessageReceivedFromServer(msg, false);
+
+        assertEquals(
+                new String(content(file), StandardCharsets.UTF_8),
+                new String(msg.getResponseBody().getBytes(), StandardCharsets.UTF_8));
+        assertEquals(
+                Integer.toString(content(file).length),
+                msg.getResponseHeader().getHeader(HttpHeader.CONTENT_LENGTH));
+    }
+
+    private static String url(int file) {
+        return "http://example.com/file" + file + ".txt";
+    }
+
+    private static byte[] content(int file) {
+        return ("Content of file " + file).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.parosproxy.paros.network.HttpHeader;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.parosproxy.paros.network.HttpStatusCode;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalConditionalRequest;
+import org.zaproxy.zap.extension.maplocal.content.MapLocalContentCache;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/** Unit test for {@link MapLocalMessageHandler}. */
+class MapLocalMessageHandlerTest {
+
+    private static final String URL = "http://example.com/file.txt";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final byte[] CONTENT =
+            "Local content, long enough to be compressed, long enough to be compressed."
+                    .getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir Path dir;
+
+    private Path file;
+    private MapLocalTableEntry mapLocal;
+    private MapLocalContentCache contentCache;
+    private MapLocalMessageHandler handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.write(dir.resolve("file.txt"), CONTENT);
+        mapLocal = new MapLocalTableEntry(URL, MapLocalTableEntry.Match.contains, false, file);
+        contentCache = new MapLocalContentCache(1);
+        handler = new MapLocalMessageHandler(contentCache);
+        handler.setEnabledMapLocals(List.of(mapLocal));
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void shouldServeHeadLocallyWithoutBody() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.HEAD, "");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.OK, msg.getResponseHeader().getStatusCode());
+        assertEquals(CONTENT.length, msg.getResponseHeader().getContentLength());
+        assertEquals(0, msg.getResponseBody().length());
+    }
+
+    @Test
+    void shouldServeHeadLocallyWithoutRanges() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.HEAD, "Range: bytes=0-1,4-5\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.OK, msg.getResponseHeader().getStatusCode());
+        assertNull(msg.getResponseHeader().getHeader(CONTENT_RANGE));
+        assertEquals(CONTENT.length, msg.getResponseHeader().getContentLength());
+        assertEquals(0, msg.getResponseBody().length());
+    }
+
+    @Test
+    void shouldServeSingleRange() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.GET, "Range: bytes=6-12\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.PARTIAL_CONTENT, msg.getResponseHeader().getStatusCode());
+        assertEquals(
+                "bytes 6-12/" + CONTENT.length, msg.getResponseHeader().getHeader(CONTENT_RANGE));
+        assertEquals("content", msg.getResponseBody().toString());
+        assertEquals(7, msg.getResponseHeader().getContentLength());
+    }
+
+    @Test
+    void shouldServeSuffixRange() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.GET, "Range: bytes=-11\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.PARTIAL_CONTENT, msg.getResponseHeader().getStatusCode());
+        long start = CONTENT.length - 11;
+        assertEquals(
+                "bytes " + start + "-" + (CONTENT.length - 1) + "/" + CONTENT.length,
+                msg.getResponseHeader().getHeader(CONTENT_RANGE));
+        assertEquals("compressed.", msg.getResponseBody().toString());
+    }
+
+    @Test
+    void shouldServeMultipleRangesAsMultipart() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.GET, "Range: bytes=0-4,6-12\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.PARTIAL_CONTENT, msg.getResponseHeader().getStatusCode());
+        String contentType = msg.getResponseHeader().getHeader(HttpHeader.CONTENT_TYPE);
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="), contentType);
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        String body = msg.getResponseBody().toString();
+        assertEquals(
+                "--"
+                        + boundary
+                        + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-4/"
+                        + CONTENT.length
+                        + "\r\n\r\nLocal\r\n--"
+                        + boundary
+                        + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 6-12/"
+                        + CONTENT.length
+                        + "\r\n\r\ncontent\r\n--"
+                        + boundary
+                        + "--\r\n",
+                body);
+        assertEquals(body.length(), msg.getResponseHeader().getContentLength());
+    }
+
+    @Test
+    void shouldServeWholeFileForOverlappingRangesLargerThanFile() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.GET, "Range: bytes=0-,0-,0-\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.OK, msg.getResponseHeader().getStatusCode());
+        assertArrayEquals(CONTENT, msg.getResponseBody().getBytes());
+    }
+
+    @Test
+    void shouldAnswerUnsatisfiableRange() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.GET, "Range: bytes=1000-\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(
+                HttpStatusCode.REQUESTED_RANGE_NOT_SATISFIABLE,
+                msg.getResponseHeader().getStatusCode());
+        assertEquals("bytes */" + CONTENT.length, msg.getResponseHeader().getHeader(CONTENT_RANGE));
+        assertEquals(0, msg.getResponseBody().length());
+    }
+
+    @Test
+    void shouldServeRangeIfRangeMatchesETag() throws Exception {
+        serveLocally();
+        String etag = strongETag();
+        HttpMessage msg =
+                message(HttpRequestHeader.GET, "Range: bytes=6-12\r\nIf-Range: " + etag + "\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.PARTIAL_CONTENT, msg.getResponseHeader().getStatusCode());
+        assertEquals("content", msg.getResponseBody().toString());
+    }
+
+    @Test
+    void shouldServeWholeFileIfRangeDoesNotMatchETag() throws Exception {
+        serveLocally();
+        strongETag();
+        HttpMessage msg =
+                message(HttpRequestHeader.GET, "Range: bytes=6-12\r\nIf-Range: \"other\"\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.OK, msg.getResponseHeader().getStatusCode());
+        assertNull(msg.getResponseHeader().getHeader(CONTENT_RANGE));
+        assertArrayEquals(CONTENT, msg.getResponseBody().getBytes());
+    }
+
+    @Test
+    void shouldCompressWholeFileIfRangeDoesNotMatchETag() throws Exception {
+        serveLocally();
+        strongETag();
+        HttpMessage msg =
+                message(
+                        HttpRequestHeader.GET,
+                        "Range: bytes=6-12\r\nIf-Range: \"other\"\r\nAccept-Encoding: gzip\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals(HttpStatusCode.OK, msg.getResponseHeader().getStatusCode());
+        assertNull(msg.getResponseHeader().getHeader(CONTENT_RANGE));
+        assertEquals("gzip", msg.getResponseHeader().getHeader(HttpHeader.CONTENT_ENCODING));
+    }
+
+    @Test
+    void shouldServeCodingWithHighestQuality() throws Exception {
+        serveLocally();
+        Files.write(dir.resolve("file.txt.br"), new byte[] {1, 2, 3});
+        HttpMessage msg =
+                message(HttpRequestHeader.GET, "Accept-Encoding: br;q=0.1, gzip;q=1\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals("gzip", msg.getResponseHeader().getHeader(HttpHeader.CONTENT_ENCODING));
+    }
+
+    @Test
+    void shouldPreferBrotliForSameQuality() throws Exception {
+        serveLocally();
+        Files.write(dir.resolve("file.txt.br"), new byte[] {1, 2, 3});
+        HttpMessage msg = message(HttpRequestHeader.GET, "Accept-Encoding: gzip, br\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertEquals("br", msg.getResponseHeader().getHeader(HttpHeader.CONTENT_ENCODING));
+        assertArrayEquals(new byte[] {1, 2, 3}, msg.getResponseBody().getBytes());
+    }
+
+    @Test
+    void shouldServeHeadLocallyWithLengthOfCompressedContent() throws Exception {
+        serveLocally();
+        HttpMessage msg = message(HttpRequestHeader.HEAD, "Accept-Encoding: gzip\r\n");
+        HttpMessage get = message(HttpRequestHeader.GET, "Accept-Encoding: gzip\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+        assertTrue(handler.handleRequestToServer(get, false));
+
+        assertEquals("gzip", msg.getResponseHeader().getHeader(HttpHeader.CONTENT_ENCODING));
+        assertEquals(
+                get.getResponseHeader().getContentLength(),
+                msg.getResponseHeader().getContentLength());
+        assertEquals(0, msg.getResponseBody().length());
+    }
+
+    @Test
+    void shouldNotSetBodyInResponseToHead() throws Exception {
+        HttpMessage msg = message(HttpRequestHeader.HEAD, "");
+        msg.setResponseHeader("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n");
+
+        handler.handleMessageReceivedFromServer(msg, false);
+
+        assertEquals(CONTENT.length, msg.getResponseHeader().getContentLength());
+        assertEquals(0, msg.getResponseBody().length());
+    }
+
+    @Test
+    void shouldSetBodyInResponseToGet() throws Exception {
+        HttpMessage msg = message(HttpRequestHeader.GET, "");
+        msg.setResponseHeader("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n");
+        msg.setResponseBody("server");
+
+        handler.handleMessageReceivedFromServer(msg, false);
+
+        assertEquals(CONTENT.length, msg.getResponseHeader().getContentLength());
+        assertArrayEquals(CONTENT, msg.getResponseBody().getBytes());
+    }
+
+    @Test
+    void shouldReadLargeFileWithoutIntermediateCopy() throws Exception {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        int size = 32 * 1024 * 1024;
+        Files.write(file, new byte[size]);
+        handler.setLargeFileThreshold(1);
+        HttpMessage msg = message(HttpRequestHeader.GET, "");
+        msg.setResponseHeader("HTTP/1.1 200 OK\r\nContent-Length: 6\r\n\r\n");
+        // Warm up, not to count the allocations of class loading
+        handler.handleMessageReceivedFromServer(message(HttpRequestHeader.HEAD, ""), false);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        handler.handleMessageReceivedFromServer(msg, false);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(size, msg.getResponseBody().length());
+        assertTrue(allocated < size + size / 4, "Allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void shouldAnswerNotModifiedWithoutReadingFile() throws Exception {
+        serveLocally();
+        HttpMessage head = message(HttpRequestHeader.HEAD, "");
+        handler.handleRequestToServer(head, false);
+        String etag = head.getResponseHeader().getHeader(MapLocalConditionalRequest.ETAG);
+        HttpMessage msg = message(HttpRequestHeader.GET, "If-None-Match: " + etag + "\r\n");
+
+        assertTrue(handler.handleRequestToServer(msg, false));
+
+        assertTrue(etag.startsWith("W/"), etag);
+        assertEquals(HttpStatusCode.NOT_MODIFIED, msg.getResponseHeader().getStatusCode());
+        assertEquals(0, contentCache.getMisses());
+    }
+
+    @Test
+    void shouldReadFileOnceAndThenUseStrongETag() throws Exception {
+        serveLocally();
+        HttpMessage first = message(HttpRequestHeader.GET, "");
+        HttpMessage second = message(HttpRequestHeader.GET, "");
+
+        handler.handleRequestToServer(first, false);
+        handler.handleRequestToServer(second, false);
+
+        assertEquals(1, contentCache.getMisses());
+        assertArrayEquals(CONTENT, second.getResponseBody().getBytes());
+        assertFalse(
+                second.getResponseHeader()
+                        .getHeader(MapLocalConditionalRequest.ETAG)
+                        .startsWith("W/"));
+    }
+
+    @Test
+    void shouldUseETagOfPrecompressedSibling() throws Exception {
+        serveLocally();
+        Path sibling = dir.resolve("file.txt.gz");
+        Files.write(sibling, new byte[] {1, 2, 3});
+        HttpMessage first = message(HttpRequestHeader.GET, "Accept-Encoding: gzip\r\n");
+        handler.handleRequestToServer(first, false);
+        Files.write(sibling, new byte[] {1, 2, 3, 4});
+        HttpMessage second = message(HttpRequestHeader.GET, "Accept-Encoding: gzip\r\n");
+
+        handler.handleRequestToServer(second, false);
+
+        assertEquals("gzip", second.getResponseHeader().getHeader(HttpHeader.CONTENT_ENCODING));
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, second.getResponseBody().getBytes());
+        assertNotEquals(
+                first.getResponseHeader().getHeader(MapLocalConditionalRequest.ETAG),
+                second.getResponseHeader().getHeader(MapLocalConditionalRequest.ETAG));
+    }
+
+    /** Reads the file, to be cached, and gets its (strong) entity tag. */
+    private String strongETag() throws Exception {
+        handler.handleRequestToServer(message(HttpRequestHeader.GET, ""), false);
+        HttpMessage head = message(HttpRequestHeader.HEAD, "");
+        handler.handleRequestToServer(head, false);
+        String etag = head.getResponseHeader().getHeader(MapLocalConditionalRequest.ETAG);
+        assertFalse(etag.startsWith("W/"), etag);
+        return etag;
+    }
+
+    private void serveLocally() {
+        mapLocal.setServeLocally(true);
+        handler.setEnabledMapLocals(List.of(mapLocal));
+    }
+
+    private static HttpMessage message(String method, String headers) throws Exception {
+        String requestLine = method + " " + URL + " HTTP/1.1\r\n";
+        return new HttpMessage(
+                new HttpRequestHeader(requestLine + "Host: example.com\r\n" + headers + "\r\n"));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link MapLocalResponseBody}. */
+class MapLocalResponseBodyTest {
+
+    @Test
+    void shouldUseContentWithoutCopying() {
+        byte[] content = bytes("content");
+
+        MapLocalResponseBody body = new MapLocalResponseBody(content);
+
+        assertSame(content, body.getBytes());
+        assertEquals(7, body.length());
+    }
+
+    @Test
+    void shouldNotChangeContentWhenSettingLength() {
+        byte[] content = bytes("content");
+        MapLocalResponseBody body = new MapLocalResponseBody(content);
+
+        body.setLength(4);
+
+        assertArrayEquals(bytes("cont"), body.getBytes());
+        assertEquals(4, body.length());
+        assertArrayEquals(bytes("content"), content);
+    }
+
+    @Test
+    void shouldAppendToContent() {
+        MapLocalResponseBody body = new MapLocalResponseBody(bytes("content"));
+
+        body.append(bytes(" appended"));
+
+        assertArrayEquals(bytes("content appended"), body.getBytes());
+        assertEquals(16, body.length());
+    }
+
+    @Test
+    void shouldReplaceContent() {
+        byte[] content = bytes("content");
+        MapLocalResponseBody body = new MapLocalResponseBody(content);
+
+        body.setBody(bytes("other"));
+
+        assertNotSame(content, body.getBytes());
+        assertArrayEquals(bytes("other"), body.getBytes());
+        assertEquals(5, body.length());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
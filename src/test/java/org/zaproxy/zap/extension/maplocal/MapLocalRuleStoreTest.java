@@ -0,0 +1,91 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/** Unit test for {@link MapLocalRuleStore}. */
+class MapLocalRuleStoreTest {
+
+    private List<MapLocalTableEntry> enabled;
+    private MapLocalRuleStore store;
+
+    @BeforeEach
+    void setUp() {
+        enabled = new ArrayList<>();
+        store = new MapLocalRuleStore(list -> enabled = list);
+    }
+
+    @Test
+    void shouldMoveEditedMapLocalAfterTheOthers() {
+        MapLocalTableEntry a = mapLocal("a");
+        MapLocalTableEntry b = mapLocal("b");
+        MapLocalTableEntry c = mapLocal("c");
+        store.addMapLocals(List.of(a, b, c));
+        MapLocalTableEntry edited = mapLocal("edited");
+
+        store.editMapLocal(a, edited);
+
+        assertEquals(List.of(b, c, edited), store.getMapLocals());
+        assertEquals(List.of(b, c, edited), enabled);
+    }
+
+    @Test
+    void shouldNotifyEnabledMapLocalsInEnableOrder() {
+        MapLocalTableEntry a = mapLocal("a");
+        MapLocalTableEntry b = mapLocal("b");
+        MapLocalTableEntry c = mapLocal("c");
+        store.addMapLocals(List.of(a, b, c));
+
+        store.setEnabled(List.of(a), false);
+        store.setEnabled(List.of(a), true);
+
+        assertEquals(List.of(a, b, c), store.getMapLocals());
+        assertEquals(List.of(b, c, a), enabled);
+    }
+
+    @Test
+    void shouldRemoveMapLocalsFromEnabled() {
+        MapLocalTableEntry a = mapLocal("a");
+        MapLocalTableEntry b = mapLocal("b");
+        MapLocalTableEntry c = mapLocal("c");
+        store.addMapLocals(List.of(a, b, c));
+
+        store.removeMapLocals(List.of(a, c));
+
+        assertEquals(List.of(b), store.getMapLocals());
+        assertEquals(List.of(b), enabled);
+    }
+
+    private static MapLocalTableEntry mapLocal(String name) {
+        MapLocalTableEntry mapLocal =
+                new MapLocalTableEntry(
+                        name, MapLocalTableEntry.Match.contains, false, Path.of(name));
+        mapLocal.setEnabled(true);
+        return mapLocal;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link MapLocalByteRanges}. */
+class MapLocalByteRangesTest {
+
+    private static final long SIZE = 100;
+
+    @Test
+    void shouldParseSingleRange() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=10-19", SIZE);
+
+        assertEquals(1, ranges.size());
+        assertEquals(10, ranges.getStart(0));
+        assertEquals(10, ranges.getLength(0));
+        assertEquals("bytes 10-19/100", ranges.getContentRange(0, SIZE));
+    }
+
+    @Test
+    void shouldParseOpenEndedRange() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=90-", SIZE);
+
+        assertEquals("bytes 90-99/100", ranges.getContentRange(0, SIZE));
+    }
+
+    @Test
+    void shouldParseSuffixRange() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=-5", SIZE);
+
+        assertEquals("bytes 95-99/100", ranges.getContentRange(0, SIZE));
+    }
+
+    @Test
+    void shouldLimitSuffixRangeToSize() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=-500", 10);
+
+        assertEquals("bytes 0-9/10", ranges.getContentRange(0, 10));
+    }
+
+    @Test
+    void shouldLimitEndToSize() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=50-500", SIZE);
+
+        assertEquals(50, ranges.getLength(0));
+    }
+
+    @Test
+    void shouldSortAndMergeOverlappingAndAdjacentRanges() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=50-59, 0-9, 5-14, 15-19", SIZE);
+
+        assertEquals(2, ranges.size());
+        assertEquals("bytes 0-19/100", ranges.getContentRange(0, SIZE));
+        assertEquals("bytes 50-59/100", ranges.getContentRange(1, SIZE));
+        assertEquals(30, ranges.getTotalLength());
+    }
+
+    @Test
+    void shouldIgnoreRangesLargerThanFile() {
+        assertNull(MapLocalByteRanges.parse("bytes=0-,0-,0-", SIZE));
+        assertNull(MapLocalByteRanges.parse("bytes=0-59,40-99", SIZE));
+    }
+
+    @Test
+    void shouldBeEmptyIfNoRangeIsSatisfiable() {
+        MapLocalByteRanges ranges = MapLocalByteRanges.parse("bytes=100-, 200-300", SIZE);
+
+        assertTrue(ranges.isEmpty());
+        assertEquals("bytes */100", MapLocalByteRanges.getUnsatisfiedContentRange(SIZE));
+    }
+
+    @Test
+    void shouldIgnoreInvalidHeaders() {
+        assertNull(MapLocalByteRanges.parse(null, SIZE));
+        assertNull(MapLocalByteRanges.parse("items=0-1", SIZE));
+        assertNull(MapLocalByteRanges.parse("bytes=1", SIZE));
+        assertNull(MapLocalByteRanges.parse("bytes=-", SIZE));
+        assertNull(MapLocalByteRanges.parse("bytes=9-1", SIZE));
+        assertNull(MapLocalByteRanges.parse("bytes=a-1", SIZE));
+    }
+
+    @Test
+    void shouldIgnoreTooManyRanges() {
+        StringBuilder range = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 16; i++) {
+            range.append(',').append(i * 2).append('-').append(i * 2);
+        }
+
+        assertNull(MapLocalByteRanges.parse(range.toString(), SIZE));
+    }
+}
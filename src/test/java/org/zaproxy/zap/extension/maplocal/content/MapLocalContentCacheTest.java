@@ -0,0 +1,113 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit test for {@link MapLocalContentCache}. */
+class MapLocalContentCacheTest {
+
+    private static final byte[] CONTENT = "Local content".getBytes(StandardCharsets.US_ASCII);
+
+    @TempDir Path dir;
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.write(dir.resolve("file.txt"), CONTENT);
+    }
+
+    @Test
+    void shouldNotReadFileNotCachedForValidator() throws Exception {
+        MapLocalContentCache cache = new MapLocalContentCache(1);
+
+        MapLocalContentCache.Validator validator = cache.getValidator(file, Long.MAX_VALUE);
+
+        assertEquals(CONTENT.length, validator.getSize());
+        assertNull(validator.getHash());
+        assertNull(validator.getContent());
+        assertNotNull(validator.getContentType());
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void shouldHaveContentAndHashOfCachedFile() throws Exception {
+        MapLocalContentCache cache = new MapLocalContentCache(1);
+        byte[] content = cache.getContent(file);
+
+        MapLocalContentCache.Validator validator = cache.getValidator(file, Long.MAX_VALUE);
+
+        assertSame(content, validator.getContent());
+        assertNotNull(validator.getHash());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void shouldKeepHashOfFileReadButNotCached() throws Exception {
+        MapLocalContentCache cache = new MapLocalContentCache(0);
+        cache.getContent(file);
+
+        MapLocalContentCache.Validator validator = cache.getValidator(file, Long.MAX_VALUE);
+
+        assertEquals(0, cache.getEntryCount());
+        assertNull(validator.getContent());
+        assertEquals(hashOfCachedFile(), validator.getHash());
+    }
+
+    @Test
+    void shouldNotKeepHashOfFileChanged() throws Exception {
+        MapLocalContentCache cache = new MapLocalContentCache(0);
+        cache.getContent(file);
+        Files.write(file, "Changed local content".getBytes(StandardCharsets.US_ASCII));
+
+        MapLocalContentCache.Validator validator = cache.getValidator(file, Long.MAX_VALUE);
+
+        assertNull(validator.getHash());
+    }
+
+    @Test
+    void shouldNotUseCachedContentOfFileLargerThanMaxSize() throws Exception {
+        MapLocalContentCache cache = new MapLocalContentCache(1);
+        cache.getContent(file);
+
+        MapLocalContentCache.Validator validator = cache.getValidator(file, 1);
+
+        assertNull(validator.getContent());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    private String hashOfCachedFile() throws Exception {
+        MapLocalContentCache cache = new MapLocalContentCache(1);
+        cache.getContent(file);
+        return cache.getValidator(file, Long.MAX_VALUE).getHash();
+    }
+}
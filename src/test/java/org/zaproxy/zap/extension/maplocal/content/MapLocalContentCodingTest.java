@@ -0,0 +1,107 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link MapLocalContentCoding}. */
+class MapLocalContentCodingTest {
+
+    private static final String BR = MapLocalContentCoding.BROTLI;
+    private static final String GZIP = MapLocalContentCoding.GZIP;
+
+    @Test
+    void shouldAcceptListedCodings() {
+        assertTrue(MapLocalContentCoding.isAccepted("gzip, deflate, br", GZIP));
+        assertTrue(MapLocalContentCoding.isAccepted("gzip, deflate, br", BR));
+        assertTrue(MapLocalContentCoding.isAccepted("x-gzip", GZIP));
+        assertTrue(MapLocalContentCoding.isAccepted("GZIP;Q=0.5", GZIP));
+    }
+
+    @Test
+    void shouldNotAcceptCodingsNotListedOrWithZeroQuality() {
+        assertFalse(MapLocalContentCoding.isAccepted(null, GZIP));
+        assertFalse(MapLocalContentCoding.isAccepted("", GZIP));
+        assertFalse(MapLocalContentCoding.isAccepted("deflate", GZIP));
+        assertFalse(MapLocalContentCoding.isAccepted("gzip;q=0", GZIP));
+        assertFalse(MapLocalContentCoding.isAccepted("gzip;q=invalid", GZIP));
+    }
+
+    @Test
+    void shouldAcceptCodingsMatchedByWildcardUnlessExplicit() {
+        assertTrue(MapLocalContentCoding.isAccepted("*", BR));
+        assertFalse(MapLocalContentCoding.isAccepted("*;q=0", BR));
+        assertFalse(MapLocalContentCoding.isAccepted("*, br;q=0", BR));
+        assertTrue(MapLocalContentCoding.isAccepted("*;q=0, br", BR));
+    }
+
+    @Test
+    void shouldOrderAcceptedCodingsByQuality() {
+        assertEquals(List.of(GZIP, BR), accepted("br;q=0.1, gzip;q=1"));
+        assertEquals(List.of(GZIP, BR), accepted("br;q=0.5, gzip"));
+        assertEquals(List.of(BR, GZIP), accepted("gzip;q=0.8, br;q=0.9"));
+    }
+
+    @Test
+    void shouldPreferBrotliForSameQuality() {
+        assertEquals(List.of(BR, GZIP), accepted("gzip, deflate, br"));
+        assertEquals(List.of(BR, GZIP), accepted("gzip;q=0.5, br;q=0.5"));
+        assertEquals(List.of(BR, GZIP), accepted("*"));
+    }
+
+    @Test
+    void shouldNotIncludeCodingsNotAccepted() {
+        assertEquals(List.of(GZIP), accepted("gzip, br;q=0"));
+        assertEquals(List.of(BR), accepted("*, gzip;q=0"));
+        assertEquals(List.of(), accepted("deflate"));
+        assertEquals(List.of(), accepted(null));
+    }
+
+    @Test
+    void shouldNotIncludeCodingsLessPreferredThanIdentity() {
+        assertEquals(List.of(BR), accepted("br, gzip;q=0.5, identity;q=0.8"));
+        assertEquals(List.of(BR), accepted("gzip;q=0.5, *"));
+    }
+
+    @Test
+    void shouldIncludeCodingsIfIdentityNotAccepted() {
+        assertEquals(List.of(GZIP), accepted("gzip, identity;q=0"));
+        assertEquals(List.of(), accepted("identity;q=0"));
+        assertEquals(List.of(BR, GZIP), accepted("br;q=0.5, gzip;q=0.5, *;q=0"));
+    }
+
+    @Test
+    void shouldCompressOnlyTextBasedContent() {
+        assertTrue(MapLocalContentCoding.isCompressible("text/html; charset=UTF-8"));
+        assertTrue(MapLocalContentCoding.isCompressible("application/json"));
+        assertTrue(MapLocalContentCoding.isCompressible("image/svg+xml"));
+        assertFalse(MapLocalContentCoding.isCompressible("image/png"));
+        assertFalse(MapLocalContentCoding.isCompressible(null));
+    }
+
+    private static List<String> accepted(String acceptEncoding) {
+        return MapLocalContentCoding.getAccepted(acceptEncoding, BR, GZIP);
+    }
+}
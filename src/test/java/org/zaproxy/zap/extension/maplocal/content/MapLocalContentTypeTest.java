@@ -0,0 +1,105 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link MapLocalContentType}. */
+class MapLocalContentTypeTest {
+
+    @Test
+    void shouldValidateContentTypes() {
+        assertTrue(MapLocalContentType.isValid("text/html"));
+        assertTrue(MapLocalContentType.isValid("text/html; charset=UTF-8"));
+        assertFalse(MapLocalContentType.isValid("text"));
+        assertFalse(MapLocalContentType.isValid("text/html\r\nX-Injected: 1"));
+        assertFalse(MapLocalContentType.isValid(null));
+    }
+
+    @Test
+    void shouldInferFromExtensionIgnoringCase() {
+        assertEquals("text/javascript", infer("app.JS", "<html>"));
+        assertEquals("image/svg+xml", infer("logo.svg", "{}"));
+    }
+
+    @Test
+    void shouldSniffIfExtensionNotKnown() {
+        assertEquals("text/html", infer("page", "<!DOCTYPE html><html></html>"));
+    }
+
+    @Test
+    void shouldSniffBinaryFormatsFromMagicNumbers() {
+        assertEquals("image/png", sniff(0x89, 'P', 'N', 'G', '\r', '\n'));
+        assertEquals("image/jpeg", sniff(0xFF, 0xD8, 0xFF, 0xE0));
+        assertEquals("image/gif", sniff('G', 'I', 'F', '8', '9', 'a'));
+        assertEquals("image/webp", sniff('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'));
+        assertEquals("application/pdf", sniff('%', 'P', 'D', 'F', '-', '1'));
+        assertEquals("application/gzip", sniff(0x1F, 0x8B, 8));
+        assertEquals("font/woff2", sniff('w', 'O', 'F', '2'));
+        assertEquals("application/wasm", sniff(0, 'a', 's', 'm', 1, 0, 0, 0));
+    }
+
+    @Test
+    void shouldSniffTextFromLeadingMarkup() {
+        assertEquals("text/html", sniff("  <html><body></body></html>"));
+        assertEquals("text/html", sniff("\uFEFF<!doctype html>"));
+        assertEquals("image/svg+xml", sniff("<svg xmlns=\"http://www.w3.org/2000/svg\"/>"));
+        assertEquals("image/svg+xml", sniff("<?xml version=\"1.0\"?><svg/>"));
+        assertEquals("application/xml", sniff("<?xml version=\"1.0\"?><root/>"));
+        assertEquals("application/json", sniff("[1, 2]"));
+        assertEquals("text/plain", sniff("Plain text"));
+    }
+
+    @Test
+    void shouldSniffOctetStreamForUnknownBinary() {
+        assertEquals("application/octet-stream", sniff(0, 1, 2, 0xFE, 0xFF));
+    }
+
+    @Test
+    void shouldSniffOnlyGivenLength() {
+        byte[] head = "<html>".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("text/plain", MapLocalContentType.sniff(head, 2));
+    }
+
+    private static String infer(String fileName, String content) {
+        byte[] head = content.getBytes(StandardCharsets.UTF_8);
+        return MapLocalContentType.infer(Path.of(fileName), head, head.length);
+    }
+
+    private static String sniff(String content) {
+        byte[] head = content.getBytes(StandardCharsets.UTF_8);
+        return MapLocalContentType.sniff(head, head.length);
+    }
+
+    private static String sniff(int... bytes) {
+        byte[] head = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            head[i] = (byte) bytes[i];
+        }
+        return MapLocalContentType.sniff(head, head.length);
+    }
+}
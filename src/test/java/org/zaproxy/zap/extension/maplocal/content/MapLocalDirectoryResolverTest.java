@@ -0,0 +1,151 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit test for {@link MapLocalDirectoryResolver}. */
+class MapLocalDirectoryResolverTest {
+
+    private static final String INDEX_FILE = "index.html";
+
+    @TempDir Path dir;
+
+    private Path mapped;
+    private Path outside;
+    private MapLocalDirectoryResolver resolver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mapped = Files.createDirectory(dir.resolve("mapped"));
+        Files.createDirectory(mapped.resolve("js"));
+        Files.createFile(mapped.resolve("js").resolve("app.js"));
+        Files.createFile(mapped.resolve(INDEX_FILE));
+        outside = Files.createFile(dir.resolve("outside.txt"));
+        resolver = new MapLocalDirectoryResolver();
+    }
+
+    @Test
+    void shouldResolveFileAfterPrefix() {
+        Path file = resolve("static", "js", "app.js");
+
+        assertEquals(mapped.resolve("js").resolve("app.js"), file);
+    }
+
+    @Test
+    void shouldResolveIndexFileOfDirectory() {
+        assertEquals(mapped.resolve(INDEX_FILE), resolve("static"));
+    }
+
+    @Test
+    void shouldNotResolveDirectoryWithoutIndexFile() {
+        assertNull(resolve("static", "js"));
+        assertNull(resolver.resolve(mapped, new String[] {"static"}, 1, ""));
+    }
+
+    @Test
+    void shouldNotResolveMissingSegment() {
+        assertNull(resolve("static", "missing.js"));
+        assertNull(resolve("static", "js", "app.js", "more"));
+    }
+
+    @Test
+    void shouldNotResolveDotSegments() {
+        assertNull(resolve("static", "..", "outside.txt"));
+        assertNull(resolve("static", "%2e%2e", "outside.txt"));
+        assertNull(resolve("static", "%2E%2E", "outside.txt"));
+        assertNull(resolve("static", ".", INDEX_FILE));
+    }
+
+    @Test
+    void shouldNotResolveEncodedSeparators() {
+        assertNull(resolve("static", "js%2fapp.js"));
+        assertNull(resolve("static", "js%2Fapp.js"));
+        assertNull(resolve("static", "js%5capp.js"));
+        assertNull(resolve("static", "..%2foutside.txt"));
+        assertNull(resolve("static", "..%5coutside.txt"));
+    }
+
+    @Test
+    void shouldNotResolveNul() {
+        assertNull(resolve("static", INDEX_FILE + "%00"));
+        assertNull(resolve("static", "js", "app.js%00.txt"));
+    }
+
+    @Test
+    void shouldNotResolveMalformedEncoding() {
+        assertNull(resolve("static", "%zz"));
+        assertNull(resolve("static", "%e9"));
+        assertNull(resolve("static", "%2"));
+    }
+
+    @Test
+    void shouldNotFollowSymbolicLinkToOutsideDirectory() throws IOException {
+        Path link = createSymbolicLink(mapped.resolve("link.txt"), outside);
+
+        assertNull(resolve("static", "link.txt"));
+        assertTrue(Files.isReadable(link));
+    }
+
+    @Test
+    void shouldFollowSymbolicLinkWithinDirectory() throws IOException {
+        Path link = createSymbolicLink(mapped.resolve("link.js"), mapped.resolve("js/app.js"));
+
+        assertEquals(link, resolve("static", "link.js"));
+    }
+
+    @Test
+    void shouldCacheWhetherDirectoryUntilCleared() throws IOException {
+        Path file = mapped.resolve(INDEX_FILE);
+        assertTrue(resolver.isDirectory(mapped));
+        assertFalse(resolver.isDirectory(file));
+
+        Files.delete(file);
+        Files.createDirectory(file);
+
+        assertFalse(resolver.isDirectory(file));
+        resolver.clear();
+        assertTrue(resolver.isDirectory(file));
+    }
+
+    private Path resolve(String... segments) {
+        return resolver.resolve(mapped, segments, 1, INDEX_FILE);
+    }
+
+    private static Path createSymbolicLink(Path link, Path target) {
+        try {
+            return Files.createSymbolicLink(link, target);
+        } catch (IOException | UnsupportedOperationException e) {
+            assumeTrue(false, "Symbolic links not supported: " + e.getMessage());
+            return null;
+        }
+    }
+}
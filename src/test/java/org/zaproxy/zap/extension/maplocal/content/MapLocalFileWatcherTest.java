@@ -0,0 +1,163 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.content;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit test for {@link MapLocalFileWatcher}. */
+class MapLocalFileWatcherTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    @TempDir Path dir;
+
+    private MapLocalContentCache cache;
+    private MapLocalFileWatcher watcher;
+
+    @BeforeEach
+    void setUp() {
+        cache = new MapLocalContentCache(1);
+        watcher = new MapLocalFileWatcher(cache);
+        cache.setWatched(watcher::isWatched);
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.stop();
+    }
+
+    @Test
+    void shouldWatchOnlyTheGivenFiles() throws Exception {
+        Path file = Files.createFile(dir.resolve("file.txt"));
+        Path other = Files.createFile(dir.resolve("other.txt"));
+
+        watcher.setWatchedFiles(List.of(file));
+
+        await(() -> watcher.isWatched(file));
+        assertFalse(watcher.isWatched(other));
+    }
+
+    @Test
+    void shouldWatchTheLastFilesSet() throws Exception {
+        Path file = Files.createFile(dir.resolve("file.txt"));
+        Path subDir = Files.createDirectory(dir.resolve("sub"));
+        Path other = Files.createFile(subDir.resolve("other.txt"));
+
+        watcher.setWatchedFiles(List.of(file));
+        watcher.setWatchedFiles(List.of(other));
+
+        await(() -> watcher.isWatched(other));
+        assertFalse(watcher.isWatched(file));
+    }
+
+    @Test
+    void shouldNotWatchAfterStop() throws Exception {
+        Path file = Files.createFile(dir.resolve("file.txt"));
+        watcher.setWatchedFiles(List.of(file));
+        await(() -> watcher.isWatched(file));
+
+        watcher.stop();
+
+        assertFalse(watcher.isWatched(file));
+    }
+
+    @Test
+    void shouldWatchManyFilesInFewDirectories() throws Exception {
+        Path[] files = new Path[10_000];
+        for (int i = 0; i < files.length; i++) {
+            Path subDir = dir.resolve("dir" + i % 10);
+            files[i] = subDir.resolve("file" + i + ".txt");
+        }
+        for (int i = 0; i < 10; i++) {
+            Files.createDirectory(dir.resolve("dir" + i));
+        }
+
+        watcher.setWatchedFiles(List.of(files));
+
+        for (Path file : files) {
+            await(() -> watcher.isWatched(file));
+        }
+    }
+
+    @Test
+    void shouldReloadChangedFileWhileOtherFileIsWrittenContinuously() throws Exception {
+        Path file = Files.write(dir.resolve("file.txt"), new byte[] {1});
+        Path log = dir.resolve("file.log");
+        watcher.setWatchedFiles(List.of(file));
+        await(() -> watcher.isWatched(file));
+        cache.getContent(file);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> appendUntilStopped(log, writing));
+        writer.start();
+
+        try {
+            Files.write(file, new byte[] {2});
+
+            await(() -> readContent(file)[0] == 2);
+        } finally {
+            writing.set(false);
+            writer.join();
+        }
+    }
+
+    private static void appendUntilStopped(Path file, AtomicBoolean writing) {
+        try {
+            while (writing.get()) {
+                Files.write(
+                        file, new byte[] {1}, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                Thread.sleep(10);
+            }
+        } catch (IOException | InterruptedException e) {
+            // Stop writing
+        }
+    }
+
+    private byte[] readContent(Path file) {
+        try {
+            return cache.getContent(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end) {
+                fail("Condition not met in " + TIMEOUT_MS + " ms");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
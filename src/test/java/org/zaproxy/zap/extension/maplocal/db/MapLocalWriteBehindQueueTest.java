@@ -0,0 +1,149 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/** Unit test for {@link MapLocalWriteBehindQueue}. */
+class MapLocalWriteBehindQueueTest {
+
+    private RecordingTable table;
+    private MapLocalWriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        table = new RecordingTable();
+        queue = new MapLocalWriteBehindQueue(table);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void shouldNotWriteInsertRemovedBeforeWritten() {
+        MapLocalTableEntry first = mapLocal("first");
+        MapLocalTableEntry second = mapLocal("second");
+        queue.add(first);
+        queue.add(second);
+
+        queue.remove(first);
+
+        assertEquals(1, queue.getQueueSize());
+        queue.flush();
+        assertEquals(List.of("insert second"), table.operations);
+        assertEquals(1, queue.getCoalesced());
+    }
+
+    @Test
+    void shouldCancelManyInsertsNotYetWritten() {
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+        // Not enough to be written right away
+        for (int i = 0; i < 900; i++) {
+            mapLocals.add(mapLocal("file" + i));
+        }
+        MapLocalTableEntry kept = mapLocal("kept");
+        queue.addAll(mapLocals);
+        queue.add(kept);
+
+        mapLocals.forEach(queue::remove);
+
+        assertEquals(1, queue.getQueueSize());
+        queue.flush();
+        assertEquals(List.of("insert kept"), table.operations);
+        assertEquals(900, queue.getCoalesced());
+    }
+
+    @Test
+    void shouldWriteEditOfInsertAsInsert() {
+        MapLocalTableEntry mapLocal = mapLocal("old");
+        MapLocalTableEntry edited = mapLocal("new");
+        queue.add(mapLocal);
+
+        queue.update(mapLocal, edited);
+
+        queue.flush();
+        assertEquals(List.of("insert new"), table.operations);
+        assertEquals(1, edited.getMapLocalId());
+    }
+
+    @Test
+    void shouldWriteChangesInOrder() {
+        MapLocalTableEntry mapLocal = mapLocal("old");
+        MapLocalTableEntry edited = mapLocal("new");
+        queue.add(mapLocal);
+        queue.flush();
+
+        queue.update(mapLocal, edited);
+        queue.add(mapLocal("other"));
+        queue.remove(edited);
+
+        queue.flush();
+        assertEquals(List.of("insert old", "delete 1", "insert other"), table.operations);
+    }
+
+    private static MapLocalTableEntry mapLocal(String name) {
+        return new MapLocalTableEntry(
+                name, MapLocalTableEntry.Match.contains, false, Path.of(name));
+    }
+
+    private static class RecordingTable extends TableMapLocal {
+
+        private final List<String> operations = new ArrayList<>();
+        private int lastId;
+
+        @Override
+        public synchronized int[] writeAll(List<RecordMapLocal> records) {
+            int[] ids = new int[records.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = ++lastId;
+                records.get(i).setMapLocalId(ids[i]);
+                operations.add("insert " + records.get(i).getUrlString());
+            }
+            return ids;
+        }
+
+        @Override
+        public synchronized void update(
+                int mapLocId,
+                String urlString,
+                String match,
+                boolean ignoreCase,
+                String localPath,
+                boolean serveLocally,
+                String contentType) {
+            operations.add("update " + mapLocId + " " + urlString);
+        }
+
+        @Override
+        public synchronized void deleteMapLocal(int mapLocId) {
+            operations.add("delete " + mapLocId);
+        }
+    }
+}
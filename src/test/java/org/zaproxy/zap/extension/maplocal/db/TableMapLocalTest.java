@@ -0,0 +1,164 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.parosproxy.paros.db.DatabaseException;
+
+/** Unit test for {@link TableMapLocal}, with an in-memory database. */
+class TableMapLocalTest {
+
+    private Connection conn;
+    private TableMapLocal table;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        conn = DriverManager.getConnection("jdbc:hsqldb:mem:" + UUID.randomUUID(), "SA", "");
+        table =
+                new TableMapLocal() {
+                    @Override
+                    protected Connection getConnection() {
+                        return conn;
+                    }
+                };
+        table.reconnect(conn);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Statement statement = conn.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        conn.close();
+    }
+
+    @Test
+    void shouldReadAllTheSameAsReadingEachId() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            table.write(
+                    "http://example.com/" + i,
+                    i % 2 == 0 ? "contains" : "regex",
+                    i % 3 == 0,
+                    "/tmp/file" + i,
+                    i % 5 == 0,
+                    i % 7 == 0 ? null : "text/plain");
+        }
+        table.deleteMapLocal(10);
+        List<RecordMapLocal> readAll = new ArrayList<>();
+
+        table.readAll(readAll::add);
+
+        List<Integer> ids = table.getMapLocalList();
+        Collections.sort(ids);
+        assertEquals(ids.size(), readAll.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertRecordEquals(table.read(ids.get(i)), readAll.get(i));
+        }
+    }
+
+    @Test
+    void shouldWriteAllWithTheGeneratedIds() throws Exception {
+        table.write("http://example.com/first", "contains", false, "/tmp/first", false, null);
+        List<RecordMapLocal> records = records(2500);
+
+        int[] ids = table.writeAll(records);
+        table.write("http://example.com/last", "contains", false, "/tmp/last", false, null);
+        int[] moreIds = table.writeAll(records(10));
+
+        assertEquals(records.size(), ids.length);
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(ids[i], records.get(i).getMapLocalId());
+            assertRecordEquals(records.get(i), table.read(ids[i]));
+        }
+        assertEquals(ids[ids.length - 1] + 2, moreIds[0]);
+        assertEquals(records.size() + 12, table.getMapLocalList().size());
+    }
+
+    @Test
+    void shouldNotChangeAutoCommitWhenWritingAll() throws Exception {
+        conn.setAutoCommit(true);
+
+        table.writeAll(records(5));
+
+        assertTrue(conn.getAutoCommit());
+    }
+
+    @Test
+    void shouldRollBackOnlyTheBatchThatFailed() throws Exception {
+        conn.setAutoCommit(true);
+        List<RecordMapLocal> records = records(2500);
+        records.set(1500, new RecordMapLocal(-1, null, "prefix", false, "/tmp/file", false, null));
+
+        assertThrows(DatabaseException.class, () -> table.writeAll(records));
+
+        assertTrue(conn.getAutoCommit());
+        assertEquals(1000, table.getMapLocalList().size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i < 1000, records.get(i).getMapLocalId() != -1, "Record " + i);
+        }
+    }
+
+    @Test
+    void shouldWriteNothingForNoRecords() throws Exception {
+        int[] ids = table.writeAll(List.of());
+
+        assertEquals(0, ids.length);
+        assertEquals(0, table.getMapLocalList().size());
+    }
+
+    private static List<RecordMapLocal> records(int count) {
+        List<RecordMapLocal> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(
+                    new RecordMapLocal(
+                            -1,
+                            "http://example.com/" + i,
+                            "prefix",
+                            i % 2 == 0,
+                            "/tmp/file" + i,
+                            i % 3 == 0,
+                            i % 4 == 0 ? "text/html" : null));
+        }
+        return records;
+    }
+
+    static void assertRecordEquals(RecordMapLocal expected, RecordMapLocal actual) {
+        assertEquals(expected.getMapLocalId(), actual.getMapLocalId());
+        assertEquals(expected.getUrlString(), actual.getUrlString());
+        assertEquals(expected.getMatch(), actual.getMatch());
+        assertEquals(expected.isIgnoreCase(), actual.isIgnoreCase());
+        assertEquals(expected.getLocalPath(), actual.getLocalPath());
+        assertEquals(expected.isServeLocally(), actual.isServeLocally());
+        assertEquals(expected.getContentType(), actual.getContentType());
+    }
+}
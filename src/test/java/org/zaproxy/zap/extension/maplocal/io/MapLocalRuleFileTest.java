@@ -0,0 +1,140 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/** Unit test for {@link MapLocalRuleFile}. */
+class MapLocalRuleFileTest {
+
+    @TempDir Path dir;
+
+    private Path file;
+    private Path mapped;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = dir.resolve("maplocals.jsonl");
+        mapped = Files.createFile(dir.resolve("app.js"));
+    }
+
+    @Test
+    void shouldReadValidMapLocals() throws IOException {
+        write(
+                "# comment",
+                "{\"url\":\"https://example.com/app.js\",\"localPath\":\"app.js\"}",
+                "",
+                "{\"url\":\"https://example.com/\",\"match\":\"prefix\",\"localPath\":\""
+                        + json(dir)
+                        + "\",\"enabled\":false}");
+
+        List<MapLocalTableEntry> mapLocals = read();
+
+        assertEquals(2, mapLocals.size());
+        assertEquals(MapLocalTableEntry.Match.contains, mapLocals.get(0).getMatch());
+        assertEquals(mapped, mapLocals.get(0).getLocalPath());
+        assertTrue(mapLocals.get(0).isEnabled());
+        assertEquals(MapLocalTableEntry.Match.prefix, mapLocals.get(1).getMatch());
+        assertEquals(dir, mapLocals.get(1).getLocalPath());
+    }
+
+    @Test
+    void shouldReadNullContentTypeAsNone() throws IOException {
+        write("{\"url\":\"app.js\",\"localPath\":\"app.js\",\"contentType\":null}");
+
+        List<MapLocalTableEntry> mapLocals = read();
+
+        assertNull(mapLocals.get(0).getContentType());
+    }
+
+    @Test
+    void shouldReadRegexEscapedAsTheMapLocalsCompileIt() throws IOException {
+        write("{\"url\":\"app(.js\",\"match\":\"regex\",\"localPath\":\"app.js\"}");
+
+        List<MapLocalTableEntry> mapLocals = read();
+
+        assertEquals(1, mapLocals.size());
+        assertEquals(MapLocalTableEntry.Match.regex, mapLocals.get(0).getMatch());
+    }
+
+    @Test
+    void shouldRejectPrefixWithQuery() throws IOException {
+        write(
+                "{\"url\":\"https://example.com/?a=b\",\"match\":\"prefix\","
+                        + "\"localPath\":\"app.js\"}");
+
+        assertInvalidLine(1);
+    }
+
+    @Test
+    void shouldRejectLocalPathNotReadable() throws IOException {
+        write(
+                "{\"url\":\"app.js\",\"localPath\":\"app.js\"}",
+                "{\"url\":\"main.js\",\"localPath\":\"main.js\"}");
+
+        assertInvalidLine(2);
+    }
+
+    @Test
+    void shouldRejectDirectoryIfNotPrefix() throws IOException {
+        write("{\"url\":\"https://example.com/\",\"localPath\":\"" + json(dir) + "\"}");
+
+        assertInvalidLine(1);
+    }
+
+    @Test
+    void shouldRejectInvalidContentType() throws IOException {
+        write("{\"url\":\"app.js\",\"localPath\":\"app.js\",\"contentType\":\"text\"}");
+
+        assertInvalidLine(1);
+    }
+
+    private void write(String... lines) throws IOException {
+        Files.write(file, List.of(lines));
+    }
+
+    private List<MapLocalTableEntry> read() throws IOException {
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+        assertEquals(MapLocalRuleFile.read(file, mapLocals::add), mapLocals.size());
+        return mapLocals;
+    }
+
+    private void assertInvalidLine(int lineNumber) {
+        IOException e = assertThrows(IOException.class, this::read);
+        assertTrue(e.getMessage().startsWith("Line " + lineNumber + " "), e.getMessage());
+    }
+
+    private static String json(Path path) {
+        return path.toString().replace("\\", "\\\\");
+    }
+}
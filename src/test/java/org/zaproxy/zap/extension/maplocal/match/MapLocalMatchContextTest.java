@@ -0,0 +1,96 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.apache.commons.httpclient.URI;
+import org.apache.commons.httpclient.URIException;
+import org.junit.jupiter.api.Test;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry.Match;
+
+/** Unit test for {@link MapLocalMatchContext}. */
+class MapLocalMatchContextTest {
+
+    private static final Path LOCAL_PATH = Path.of("file.txt");
+
+    @Test
+    void shouldComputeUriOnceForAllCalls() throws Exception {
+        CountingUri uri = new CountingUri("http://a.com/app.js");
+        MapLocalMatchContext context = MapLocalMatchContext.of(message(uri), false, false);
+
+        String first = context.getUri();
+        context.getLowerCaseUri();
+
+        assertSame(first, context.getUri());
+        assertEquals(1, uri.count);
+    }
+
+    @Test
+    void shouldComputeUriOnceWhenMatchingManyMapLocals() throws Exception {
+        CountingUri uri = new CountingUri("http://a.com/app.js");
+        MapLocalRuleSet ruleSet =
+                new MapLocalRuleSet(
+                        1,
+                        List.of(
+                                mapLocal("http://b.com/app.js", Match.contains, false),
+                                mapLocal("HTTP://B.COM/", Match.contains, true),
+                                mapLocal("b\\.com/.*\\.js", Match.regex, false),
+                                mapLocal("http://b.com/", Match.prefix, false)));
+
+        assertNull(ruleSet.find(message(uri), false, false));
+        assertEquals(1, uri.count);
+    }
+
+    private static MapLocalTableEntry mapLocal(String string, Match match, boolean ignoreCase) {
+        return new MapLocalTableEntry(string, match, ignoreCase, LOCAL_PATH);
+    }
+
+    private static HttpMessage message(CountingUri uri) throws Exception {
+        HttpRequestHeader requestHeader =
+                new HttpRequestHeader("GET " + uri.getEscapedURI() + " HTTP/1.1\r\n\r\n");
+        requestHeader.setURI(uri);
+        // Count only the calls made while matching.
+        uri.count = 0;
+        return new HttpMessage(requestHeader);
+    }
+
+    private static class CountingUri extends URI {
+
+        private int count;
+
+        CountingUri(String uri) throws URIException {
+            super(uri, true);
+        }
+
+        @Override
+        public String toString() {
+            count++;
+            return super.toString();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+
+/** Unit test for {@link MapLocalResolutionCache}. */
+class MapLocalResolutionCacheTest {
+
+    private final MapLocalTableEntry mapLocal =
+            new MapLocalTableEntry(
+                    "/app.js", MapLocalTableEntry.Match.contains, false, Path.of("app.js"));
+    private final MapLocalRuleSet ruleSet = new MapLocalRuleSet(1, List.of(mapLocal));
+
+    @Test
+    void shouldResolveOncePerUri() throws Exception {
+        MapLocalResolutionCache cache = new MapLocalResolutionCache(10);
+
+        assertSame(mapLocal, cache.find(ruleSet, context("http://a.com/app.js", false)));
+        assertSame(mapLocal, cache.find(ruleSet, context("http://a.com/app.js", false)));
+        assertNull(cache.find(ruleSet, context("http://a.com/main.js", false)));
+        assertNull(cache.find(ruleSet, context("http://a.com/main.js", false)));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    void shouldResolveAgainForNewVersion() throws Exception {
+        MapLocalResolutionCache cache = new MapLocalResolutionCache(10);
+        cache.find(ruleSet, context("http://a.com/app.js", false));
+
+        MapLocalRuleSet newRuleSet = new MapLocalRuleSet(2, List.of());
+
+        assertNull(cache.find(newRuleSet, context("http://a.com/app.js", false)));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void shouldKeepUrisApartForEachScopeOption() throws Exception {
+        MapLocalResolutionCache cache = new MapLocalResolutionCache(10);
+        MapLocalScopeCache scopeCache = new MapLocalScopeCache(10, uri -> false);
+        String uri = "http://a.com/app.js";
+
+        assertSame(mapLocal, cache.find(ruleSet, context(uri, false)));
+        assertNull(cache.find(ruleSet, context(uri, true, scopeCache)));
+        assertSame(mapLocal, cache.find(ruleSet, context(uri, false)));
+        assertNull(cache.find(ruleSet, context(uri, true, scopeCache)));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedUri() throws Exception {
+        MapLocalResolutionCache cache = new MapLocalResolutionCache(2);
+        cache.find(ruleSet, context("http://a.com/app.js", false));
+        cache.find(ruleSet, context("http://b.com/app.js", false));
+        cache.find(ruleSet, context("http://a.com/app.js", false));
+
+        cache.find(ruleSet, context("http://c.com/app.js", false));
+        cache.find(ruleSet, context("http://a.com/app.js", false));
+        cache.find(ruleSet, context("http://b.com/app.js", false));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    void shouldNotStoreMapLocalResolvedBeforeClear() throws Exception {
+        MapLocalResolutionCache cache = new MapLocalResolutionCache(10);
+        boolean[] inScope = {true};
+        MapLocalScopeCache scopeCache =
+                new MapLocalScopeCache(
+                        10,
+                        uri -> {
+                            boolean decision = inScope[0];
+                            // The scope changes while resolving with the old one
+                            inScope[0] = false;
+                            cache.clear();
+                            return decision;
+                        });
+
+        assertSame(mapLocal, cache.find(ruleSet, context("http://a.com/app.js", true, scopeCache)));
+
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    private static MapLocalMatchContext context(String uri, boolean onlyIfInScope)
+            throws Exception {
+        return context(uri, onlyIfInScope, new MapLocalScopeCache(10, u -> true));
+    }
+
+    private static MapLocalMatchContext context(
+            String uri, boolean onlyIfInScope, MapLocalScopeCache scopeCache) throws Exception {
+        HttpMessage message =
+                new HttpMessage(new HttpRequestHeader("GET " + uri + " HTTP/1.1\r\n\r\n"));
+        return MapLocalMatchContext.of(message, false, onlyIfInScope, scopeCache);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry.Match;
+
+/** Unit test for {@link MapLocalRuleFilter}. */
+class MapLocalRuleFilterTest {
+
+    private static final Path LOCAL_PATH = Path.of("file.txt");
+
+    @Test
+    void shouldRejectUriWithoutLiteralOfRegex() throws Exception {
+        MapLocalRuleFilter filter = filter("/api/v[0-9]+/users");
+
+        assertFalse(filter.mightMatch(context("http://example.com/static/main.js")));
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingRegexWithUnicodeEscape() throws Exception {
+        assertMightMatch("/\\u0041BCD/", "http://example.com/ABCD/");
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingRegexWithHexEscape() throws Exception {
+        assertMightMatch("/\\x41BCD/", "http://example.com/ABCD/");
+        assertMightMatch("/\\x{41}BCD/", "http://example.com/ABCD/");
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingRegexWithOctalEscape() throws Exception {
+        assertMightMatch("/\\0101BCD/", "http://example.com/ABCD/");
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingRegexWithControlEscape() throws Exception {
+        assertMightMatch("/\\caBCDE", "http://example.com/!BCDE");
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingRegexWithPropertyEscape() throws Exception {
+        assertMightMatch("/\\pLBCD/", "http://example.com/aBCD/");
+        assertMightMatch("/\\p{Lu}BCD/", "http://example.com/ABCD/");
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingRegexWithBackReference() throws Exception {
+        assertMightMatch(
+                "/(a)(b)(c)(d)(e)(f)(g)(h)(i)(j)\\10XYZ", "http://example.com/abcdefghijjXYZ");
+    }
+
+    @Test
+    void shouldNotRejectUriMatchingContainsInOtherHost() throws Exception {
+        MapLocalRuleFilter filter =
+                MapLocalRuleFilter.of(List.of(mapLocal("http://a.com", Match.contains)));
+
+        assertTrue(filter.mightMatch(context("http://a.com.evil.net/")));
+    }
+
+    private static void assertMightMatch(String regex, String uri) throws Exception {
+        MapLocalTableEntry mapLocal = regexMapLocal(regex);
+        MapLocalMatchContext context = context(uri);
+        assertTrue(mapLocal.match(context), regex);
+
+        assertTrue(MapLocalRuleFilter.of(List.of(mapLocal)).mightMatch(context), regex);
+    }
+
+    private static MapLocalRuleFilter filter(String regex) {
+        return MapLocalRuleFilter.of(List.of(regexMapLocal(regex)));
+    }
+
+    private static MapLocalTableEntry regexMapLocal(String regex) {
+        MapLocalTableEntry mapLocal = mapLocal(regex, Match.regex);
+        mapLocal.setPattern(Pattern.compile(regex));
+        return mapLocal;
+    }
+
+    private static MapLocalTableEntry mapLocal(String string, Match match) {
+        return new MapLocalTableEntry(string, match, false, LOCAL_PATH);
+    }
+
+    private static MapLocalMatchContext context(String uri) throws Exception {
+        HttpMessage msg =
+                new HttpMessage(new HttpRequestHeader("GET " + uri + " HTTP/1.1\r\n\r\n"));
+        return MapLocalMatchContext.of(msg, false, false, null);
+    }
+}
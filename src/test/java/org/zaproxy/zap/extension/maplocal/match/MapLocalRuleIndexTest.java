@@ -0,0 +1,138 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.parosproxy.paros.network.HttpMessage;
+import org.parosproxy.paros.network.HttpRequestHeader;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry;
+import org.zaproxy.zap.extension.maplocal.view.MapLocalTableEntry.Match;
+
+/** Unit test for {@link MapLocalRuleIndex}, through an indexed {@link MapLocalRuleSet}. */
+class MapLocalRuleIndexTest {
+
+    private static final Path LOCAL_PATH = Path.of("file.txt");
+
+    @Test
+    void shouldMatchContainsUrlInUriOfLongerHost() throws Exception {
+        MapLocalTableEntry mapLocal = mapLocal("http://a.com", Match.contains, false);
+
+        MapLocalTableEntry found =
+                indexed(mapLocal).find(message("http://a.com.evil.net/"), false, false);
+
+        assertSame(mapLocal, found);
+    }
+
+    @Test
+    void shouldMatchContainsUrlInQueryOfOtherHost() throws Exception {
+        MapLocalTableEntry mapLocal = mapLocal("http://a.com/x", Match.contains, false);
+
+        MapLocalTableEntry found =
+                indexed(mapLocal)
+                        .find(message("http://b.com/?redirect=http://a.com/x"), false, false);
+
+        assertSame(mapLocal, found);
+    }
+
+    @Test
+    void shouldKeepOrderOfContainsMapLocalsOfDifferentHosts() throws Exception {
+        MapLocalTableEntry first = mapLocal("/app.js", Match.contains, false);
+        MapLocalTableEntry second = mapLocal("http://a.com/app.js", Match.contains, false);
+
+        MapLocalTableEntry found =
+                indexed(first, second).find(message("http://a.com/app.js"), false, false);
+
+        assertSame(first, found);
+    }
+
+    @Test
+    void shouldMatchPrefixOnlyForItsHost() throws Exception {
+        MapLocalTableEntry mapLocal = mapLocal("http://a.com/static/", Match.prefix, false);
+        MapLocalRuleSet ruleSet = indexed(mapLocal);
+
+        assertSame(mapLocal, ruleSet.find(message("http://a.com/static/app.js"), false, false));
+        assertNull(ruleSet.find(message("http://b.com/static/app.js"), false, false));
+        assertNull(ruleSet.find(message("http://a.com/staticfile"), false, false));
+    }
+
+    @Test
+    void shouldFindSameMapLocalAsLinearScan() throws Exception {
+        Random random = new Random(42);
+        String[] hosts = {"a.com", "b.com", "A.com", "a.com.evil.net"};
+        String[] paths = {"/", "/app.js", "/static/app.js", "/api/users?id=1", "/App.JS"};
+        List<MapLocalTableEntry> mapLocals = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String host = hosts[random.nextInt(hosts.length)];
+            String path = paths[random.nextInt(paths.length)];
+            boolean ignoreCase = random.nextBoolean();
+            switch (random.nextInt(4)) {
+                case 0:
+                    mapLocals.add(mapLocal("http://" + host + path, Match.contains, ignoreCase));
+                    break;
+                case 1:
+                    mapLocals.add(mapLocal(path, Match.contains, ignoreCase));
+                    break;
+                case 2:
+                    mapLocals.add(
+                            mapLocal(
+                                    host.replace(".", "\\.") + ".*" + path.substring(1),
+                                    Match.regex,
+                                    ignoreCase));
+                    break;
+                default:
+                    mapLocals.add(mapLocal("http://" + host + "/static/", Match.prefix, false));
+            }
+        }
+        MapLocalRuleSet linear = new MapLocalRuleSet(1, mapLocals);
+        MapLocalRuleSet indexed = linear.indexed();
+
+        for (int i = 0; i < 500; i++) {
+            String uri =
+                    "http://"
+                            + hosts[random.nextInt(hosts.length)]
+                            + paths[random.nextInt(paths.length)]
+                            + (random.nextBoolean()
+                                    ? ""
+                                    : "?next=http://" + hosts[random.nextInt(hosts.length)]);
+            HttpMessage msg = message(uri);
+            assertSame(
+                    linear.find(msg, false, false), indexed.find(msg, false, false), uri);
+        }
+    }
+
+    private static MapLocalRuleSet indexed(MapLocalTableEntry... mapLocals) {
+        return new MapLocalRuleSet(1, List.of(mapLocals)).indexed();
+    }
+
+    private static MapLocalTableEntry mapLocal(String string, Match match, boolean ignoreCase) {
+        return new MapLocalTableEntry(string, match, ignoreCase, LOCAL_PATH);
+    }
+
+    static HttpMessage message(String uri) throws Exception {
+        return new HttpMessage(new HttpRequestHeader("GET " + uri + " HTTP/1.1\r\n\r\n"));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link MapLocalScopeCache}. */
+class MapLocalScopeCacheTest {
+
+    private final Set<String> inScope = new HashSet<>();
+    private final List<String> evaluated = new ArrayList<>();
+
+    @Test
+    void shouldEvaluateScopeOncePerUri() {
+        inScope.add("http://a.com/");
+        MapLocalScopeCache cache = new MapLocalScopeCache(10, this::evaluate);
+
+        assertTrue(cache.isInScope("http://a.com/"));
+        assertTrue(cache.isInScope("http://a.com/"));
+        assertFalse(cache.isInScope("http://b.com/"));
+        assertFalse(cache.isInScope("http://b.com/"));
+
+        assertEquals(List.of("http://a.com/", "http://b.com/"), evaluated);
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    void shouldEvaluateScopeAgainAfterClear() {
+        MapLocalScopeCache cache = new MapLocalScopeCache(10, this::evaluate);
+        assertFalse(cache.isInScope("http://a.com/"));
+        inScope.add("http://a.com/");
+
+        cache.clear();
+
+        assertEquals(0, cache.getEntryCount());
+        assertTrue(cache.isInScope("http://a.com/"));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedUri() {
+        MapLocalScopeCache cache = new MapLocalScopeCache(2, this::evaluate);
+        cache.isInScope("http://a.com/");
+        cache.isInScope("http://b.com/");
+        cache.isInScope("http://a.com/");
+
+        cache.isInScope("http://c.com/");
+        cache.isInScope("http://a.com/");
+        cache.isInScope("http://b.com/");
+
+        assertEquals(
+                List.of("http://a.com/", "http://b.com/", "http://c.com/", "http://b.com/"),
+                evaluated);
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    void shouldNotStoreDecisionEvaluatedBeforeClear() {
+        MapLocalScopeCache[] cache = new MapLocalScopeCache[1];
+        inScope.add("http://a.com/");
+        cache[0] =
+                new MapLocalScopeCache(
+                        10,
+                        uri -> {
+                            boolean decision = evaluate(uri);
+                            // The scope changes while evaluating with the old one
+                            inScope.clear();
+                            cache[0].clear();
+                            return decision;
+                        });
+
+        assertTrue(cache[0].isInScope("http://a.com/"));
+
+        assertEquals(0, cache[0].getEntryCount());
+    }
+
+    private boolean evaluate(String uri) {
+        evaluated.add(uri);
+        return inScope.contains(uri);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link PathPrefix}. */
+class PathPrefixTest {
+
+    @Test
+    void shouldMatchUriUnderPrefix() throws Exception {
+        PathPrefix prefix = PathPrefix.of("https://example.com/static/", false);
+
+        assertTrue(prefix.matches(context("https://example.com/static/app.js")));
+        assertTrue(prefix.matches(context("https://example.com/static")));
+        assertTrue(prefix.matches(context("https://example.com/static/js/app.js?v=1")));
+        assertEquals(1, prefix.getSegmentCount());
+    }
+
+    @Test
+    void shouldMatchOnlyWholeSegments() throws Exception {
+        PathPrefix prefix = PathPrefix.of("https://example.com/static", false);
+
+        assertFalse(prefix.matches(context("https://example.com/statically")));
+        assertFalse(prefix.matches(context("https://example.com/stati")));
+        assertFalse(prefix.matches(context("https://example.com/")));
+    }
+
+    @Test
+    void shouldMatchAnyPathWithRootPrefix() throws Exception {
+        PathPrefix prefix = PathPrefix.of("https://example.com", false);
+
+        assertTrue(prefix.matches(context("https://example.com/")));
+        assertTrue(prefix.matches(context("https://example.com/any/path")));
+        assertEquals(0, prefix.getSegmentCount());
+    }
+
+    @Test
+    void shouldMatchDefaultPortExplicitOrNot() throws Exception {
+        assertTrue(
+                PathPrefix.of("https://example.com:443/a", false)
+                        .matches(context("https://example.com/a")));
+        assertTrue(
+                PathPrefix.of("http://example.com/a", false)
+                        .matches(context("http://example.com:80/a")));
+        assertEquals(
+                "https://example.com:443",
+                PathPrefix.of("HTTPS://Example.COM/", false).getOrigin());
+    }
+
+    @Test
+    void shouldNotMatchOtherOrigins() throws Exception {
+        PathPrefix prefix = PathPrefix.of("https://example.com/a", false);
+
+        assertFalse(prefix.matches(context("http://example.com/a")));
+        assertFalse(prefix.matches(context("https://example.com:8443/a")));
+        assertFalse(prefix.matches(context("https://example.org/a")));
+        assertFalse(prefix.matches(context("https://a.example.com/a")));
+    }
+
+    @Test
+    void shouldMatchIgnoringCaseOnlyIfSet() throws Exception {
+        assertFalse(
+                PathPrefix.of("https://example.com/Static", false)
+                        .matches(context("https://example.com/static/app.js")));
+        assertTrue(
+                PathPrefix.of("https://example.com/Static", true)
+                        .matches(context("https://example.com/STATIC/app.js")));
+    }
+
+    @Test
+    void shouldNotParseInvalidUrlsOrWithQuery() {
+        assertNull(PathPrefix.of("example.com/static", false));
+        assertNull(PathPrefix.of("file:///static", false));
+        assertNull(PathPrefix.of("https://example.com/static?a=b", false));
+    }
+
+    static MapLocalMatchContext context(String uri) throws Exception {
+        return MapLocalMatchContext.of(MapLocalRuleIndexTest.message(uri), false, false);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.zaproxy.zap.extension.maplocal.match.PathPrefixTest.context;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link PathPrefixTree}. */
+class PathPrefixTreeTest {
+
+    @Test
+    void shouldBeEmptyWithoutPrefixes() throws Exception {
+        PathPrefixTree tree = new PathPrefixTree.Builder().build();
+
+        assertTrue(tree.isEmpty());
+        assertEquals(
+                PathPrefixTree.NO_MATCH,
+                tree.findLowest(context("https://example.com/"), PathPrefixTree.NO_MATCH));
+    }
+
+    @Test
+    void shouldFindLowestValueOfMatchingPrefixes() throws Exception {
+        PathPrefixTree tree =
+                new PathPrefixTree.Builder()
+                        .add(prefix("https://example.com/static/js", false), 1)
+                        .add(prefix("https://example.com/static", false), 5)
+                        .add(prefix("https://example.com/", false), 3)
+                        .build();
+
+        assertFalse(tree.isEmpty());
+        assertEquals(1, find(tree, "https://example.com/static/js/app.js"));
+        assertEquals(3, find(tree, "https://example.com/static/css/app.css"));
+        assertEquals(3, find(tree, "https://example.com/other"));
+    }
+
+    @Test
+    void shouldKeepLowestValueOfSamePrefix() throws Exception {
+        PathPrefixTree tree =
+                new PathPrefixTree.Builder()
+                        .add(prefix("https://example.com/static", false), 4)
+                        .add(prefix("https://example.com/static/", false), 2)
+                        .add(prefix("https://example.com/static", false), 7)
+                        .build();
+
+        assertEquals(2, find(tree, "https://example.com/static/app.js"));
+    }
+
+    @Test
+    void shouldNotFindValuesNotLowerThanLimit() throws Exception {
+        PathPrefixTree tree =
+                new PathPrefixTree.Builder()
+                        .add(prefix("https://example.com/static", false), 4)
+                        .build();
+
+        assertEquals(3, tree.findLowest(context("https://example.com/static/app.js"), 3));
+    }
+
+    @Test
+    void shouldMatchOnlyWholeSegments() throws Exception {
+        PathPrefixTree tree =
+                new PathPrefixTree.Builder()
+                        .add(prefix("https://example.com/static", false), 1)
+                        .build();
+
+        assertEquals(PathPrefixTree.NO_MATCH, find(tree, "https://example.com/statically"));
+        assertEquals(PathPrefixTree.NO_MATCH, find(tree, "https://example.com/"));
+    }
+
+    @Test
+    void shouldMatchDefaultPortExplicitOrNot() throws Exception {
+        PathPrefixTree tree =
+                new PathPrefixTree.Builder()
+                        .add(prefix("https://example.com:443/static", false), 1)
+                        .add(prefix("http://example.com/static", false), 2)
+                        .build();
+
+        assertEquals(1, find(tree, "https://example.com/static/app.js"));
+        assertEquals(2, find(tree, "http://example.com:80/static/app.js"));
+        assertEquals(PathPrefixTree.NO_MATCH, find(tree, "https://example.com:8443/static/a"));
+    }
+
+    @Test
+    void shouldMatchIgnoringCaseOnlyThePrefixesThatIgnoreCase() throws Exception {
+        PathPrefixTree tree =
+                new PathPrefixTree.Builder()
+                        .add(prefix("https://example.com/Static", true), 3)
+                        .add(prefix("https://example.com/Static", false), 5)
+                        .build();
+
+        assertEquals(3, find(tree, "https://example.com/STATIC/app.js"));
+        assertEquals(3, find(tree, "https://example.com/Static/app.js"));
+    }
+
+    @Test
+    void shouldNotChangeBuiltTreeWhenAddingToBuilder() throws Exception {
+        PathPrefixTree.Builder builder =
+                new PathPrefixTree.Builder().add(prefix("https://example.com/static", false), 5);
+        PathPrefixTree tree = builder.build();
+
+        builder.add(prefix("https://example.com/static", false), 1);
+        builder.add(prefix("https://example.com/static/js", false), 2);
+
+        assertEquals(5, find(tree, "https://example.com/static/js/app.js"));
+        assertEquals(1, find(builder.build(), "https://example.com/static/js/app.js"));
+    }
+
+    private static int find(PathPrefixTree tree, String uri) throws Exception {
+        return tree.findLowest(context(uri), PathPrefixTree.NO_MATCH);
+    }
+
+    private static PathPrefix prefix(String url, boolean ignoreCase) {
+        return PathPrefix.of(url, ignoreCase);
+    }
+}
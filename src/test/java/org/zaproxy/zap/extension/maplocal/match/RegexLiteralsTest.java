@@ -0,0 +1,111 @@
+/*
+ * Zed Attack Proxy (ZAP) and its related class files.
+ *
+ * ZAP is an HTTP/HTTPS proxy for assessing web application security.
+ *
+ * Copyright 2023 The ZAP Development Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.zaproxy.zap.extension.maplocal.match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/** Unit test for {@link RegexLiterals}. */
+class RegexLiteralsTest {
+
+    @Test
+    void shouldExtractLiteralsAroundWildcards() {
+        assertEquals(List.of("/api/", "/users"), RegexLiterals.extract("/api/.*/users"));
+    }
+
+    @Test
+    void shouldExtractEscapedMetacharacters() {
+        assertEquals(List.of("example.com/a?b"), RegexLiterals.extract("example\\.com/a\\?b"));
+    }
+
+    @Test
+    void shouldNotExtractOptionalAtoms() {
+        assertEquals(List.of("http", "://a.com"), RegexLiterals.extract("https?://a\\.com"));
+    }
+
+    @Test
+    void shouldNotExtractWithTopLevelAlternation() {
+        assertEquals(List.of(), RegexLiterals.extract("abc|def"));
+    }
+
+    @Test
+    void shouldSkipWholeUnicodeEscape() {
+        assertLiterals("\\u0041BCD", "ABCD", "BCD");
+    }
+
+    @Test
+    void shouldSkipWholeHexEscape() {
+        assertLiterals("\\x41BCD", "ABCD", "BCD");
+    }
+
+    @Test
+    void shouldSkipWholeHexEscapeWithBraces() {
+        assertLiterals("\\x{41}BCD", "ABCD", "BCD");
+    }
+
+    @Test
+    void shouldSkipWholeOctalEscape() {
+        assertLiterals("\\0101BCD", "ABCD", "BCD");
+        assertLiterals("\\0477", "'7", "7");
+        assertLiterals("\\07X", "\u0007X", "X");
+    }
+
+    @Test
+    void shouldSkipWholeControlEscape() {
+        assertLiterals("\\cABCDE", "\u0001BCDE", "BCDE");
+    }
+
+    @Test
+    void shouldSkipWholePropertyEscape() {
+        assertLiterals("\\pLBCD", "aBCD", "BCD");
+        assertLiterals("\\p{Lu}BCD", "ABCD", "BCD");
+    }
+
+    @Test
+    void shouldSkipWholeNamedCharEscape() {
+        assertLiterals("\\N{LATIN CAPITAL LETTER A}BCD", "ABCD", "BCD");
+    }
+
+    @Test
+    void shouldSkipWholeBackReference() {
+        assertLiterals("(a)(b)(c)(d)(e)(f)(g)(h)(i)(j)\\10X", "abcdefghijjX", "X");
+    }
+
+    @Test
+    void shouldNotEndGroupInQuote() {
+        assertLiterals("(\\Q)\\E)abc", ")abc", "abc");
+    }
+
+    private static void assertLiterals(String regex, String text, String... expected) {
+        assertTrue(Pattern.compile(regex).matcher(text).matches(), regex);
+        List<String> literals = RegexLiterals.extract(regex);
+        assertEquals(List.of(expected), literals, regex);
+        for (String literal : literals) {
+            assertTrue(
+                    text.toLowerCase(Locale.ROOT).contains(literal.toLowerCase(Locale.ROOT)),
+                    regex);
+        }
+    }
+}